@@ -0,0 +1,30 @@
+import library.Library;
+import library.items.*;
+import library.people.*;
+public class Backend_Driver{
+    //Times lookups in a catalogue of each backend, to choose one for a workload
+    public static void main(String[] args){
+	int n = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+	try{
+	    Staff admin = new Staff("Kurt","Godel","kGod","incompleteness");
+	    for(Library.Backend backend : Library.Backend.values()){
+		Library lib = new Library(admin, backend);
+		long start = System.nanoTime();
+		for(int i = 0; i < n; i++)
+		    lib.addItem(admin, new Book.BookBuilder("Title " + i).build());
+		long added = System.nanoTime();
+		var catalogue = lib.getCatalogue(admin);
+		var uIDs = catalogue.getKeys();
+		long found = 0;
+		for(int i = 0; i < 1_000_000; i++){
+		    if(catalogue.get(uIDs.get(i % n)) != null)
+			found++;
+		}
+		long end = System.nanoTime();
+		System.out.println(backend + ": add " + (added - start) / n + "ns, get " + (end - added) / 1_000_000 + "ns (" + found + " found)");
+	    }
+	}catch(Exception e){
+	    e.printStackTrace();
+	}
+    }
+}
@@ -0,0 +1,32 @@
+import library.items.*;
+import java.util.ArrayList;
+import java.util.Random;
+public class Footprint_Driver{
+    //Measures the heap used per Item, for a catalogue whose subjects and descriptions come from a small vocabulary as an import's would
+    public static void main(String[] args){
+	int n = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+	Random random = new Random(42);
+	String[] vocabulary = new String[64];
+	for(int i = 0; i < vocabulary.length; i++)
+	    vocabulary[i] = "Subject " + i;
+	long before = used();
+	ArrayList<Item> items = new ArrayList<>(n);
+	for(int i = 0; i < n; i++){
+	    String[] subjects = new String[1 + random.nextInt(4)];
+	    for(int s = 0; s < subjects.length; s++)
+		subjects[s] = new String(vocabulary[random.nextInt(8) * (1 + s)]); //Separate strings, as a parser makes
+	    items.add(new Book.BookBuilder("Title " + i).setCopies(3).setSubjects(subjects)
+		      .setDescription(new String("Description " + random.nextInt(1000))).build());
+	}
+	long after = used();
+	System.out.println(n + " items: " + (after - before) / n + " bytes per item");
+	System.out.println(items.get(random.nextInt(n)).getSubjectList());
+    }
+
+    private static long used(){
+	Runtime rt = Runtime.getRuntime();
+	for(int i = 0; i < 4; i++)
+	    System.gc();
+	return rt.totalMemory() - rt.freeMemory();
+    }
+}
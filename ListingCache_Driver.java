@@ -0,0 +1,65 @@
+import library.SL_Library;
+import library.items.*;
+import library.people.*;
+public class ListingCache_Driver{
+    //Checks that a listing is not cached as current when an item is checked out while it is being built: exits with status 1 if it is
+    public static void main(String[] args) throws Exception{
+	Staff admin = new Staff("Kurt","Godel","kGod","incompleteness");
+	Member member = new Member("Emmy","Noether","eNoe","invariants");
+	SL_Library lib = SL_Library.concurrent(admin);
+	lib.addMember(admin, member);
+	Book a = new Book.BookBuilder("Alpha").setCopies(1).build();
+	Book b = new Book.BookBuilder("Beta").setCopies(1).build();
+	//The catalogue is scanned in uID order; the later item checks out the earlier one as it is scanned
+	Book first = a.getUID() < b.getUID() ? a : b;
+	CheckOutHook hook = new CheckOutHook(new Book.BookBuilder(first == a ? "Beta" : "Alpha").setCopies(1));
+	lib.addItem(admin, first);
+	lib.addItem(admin, hook);
+	hook.arm(() -> {
+		Thread t = new Thread(() -> {
+			try{
+			    lib.checkOutItem(admin, member, first);
+			}catch(Exception e){
+			    throw new RuntimeException(e);
+			}
+		    });
+		t.start();
+		try{
+		    t.join();
+		}catch(InterruptedException e){
+		    Thread.currentThread().interrupt();
+		}
+	    });
+	String during = lib.allAvailableItems(admin);
+	String after = lib.allAvailableItems(admin);
+	System.out.println("Built during the check out: " + during);
+	System.out.println("Built after it: " + after);
+	if(after.contains(first.getTitle())){
+	    System.out.println("FAILED: the listing built during the check out was cached as current");
+	    System.exit(1);
+	}
+	System.out.println("OK");
+    }
+
+    //A Book which, once armed, runs an action the next time its availability is tested
+    private static class CheckOutHook extends Book{
+	private volatile Runnable action;
+
+	CheckOutHook(Book.BookBuilder b){
+	    super(b);
+	}
+
+	void arm(Runnable action){
+	    this.action = action;
+	}
+
+	@Override
+	public boolean isAvailable(){
+	    Runnable run = action;
+	    action = null;
+	    if(run != null)
+		run.run();
+	    return super.isAvailable();
+	}
+    }
+}
@@ -0,0 +1,270 @@
+package library;
+import library.items.Item;
+import library.structures.IntHashIndex;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+/**
+ * A columnar copy of a Library's catalogue for analytical scans: one primitive array per field, with row i of every array describing the same item.
+ * <p>
+ * Summing a column reads one contiguous array instead of following a skip list node and calling an Item getter per item, so the loops below are simple enough for the JIT to unroll and vectorise. Catalogues larger than one CHUNK are scanned in parallel, a chunk per task, and the partial results added up.
+ * <p>
+ * The Library keeps its own CatalogueColumns up to date as items are added, checked out and returned, and hands out copies (see Library.getColumns); a copy does not change.
+ */
+public final class CatalogueColumns{
+    /**
+     * Enum for the quantities which can be summed.
+     */
+    public static enum Column{
+	/** One for each item. */
+	ITEMS,
+	/** The number of copies of each item. */
+	COPIES,
+	/** The number of copies of each item which are available. */
+	AVAILABLE;
+    }
+
+    private static final int CHUNK = 1 << 14;
+    private static final Item.Genre[] GENRES = Item.Genre.values();
+    private static final byte NO_GENRE = (byte) GENRES.length;
+
+    private int size = 0;
+    private int[] uIDs;
+    private int[] artistIDs;
+    private int[] copies;
+    private int[] available;
+    private byte[] genres; //Genre ordinals; NO_GENRE if the genre is not set
+    private final IntHashIndex rows; //uID => row; only kept by the Library's own columns
+
+    /**
+     * Constructs empty CatalogueColumns.
+     * @param capacity The number of items expected.
+     */
+    CatalogueColumns(int capacity){
+	capacity = Math.max(16, capacity);
+	uIDs = new int[capacity];
+	artistIDs = new int[capacity];
+	copies = new int[capacity];
+	available = new int[capacity];
+	genres = new byte[capacity];
+	rows = new IntHashIndex(capacity);
+    }
+
+    /**
+     * Constructs a copy of CatalogueColumns, trimmed to size.
+     */
+    private CatalogueColumns(CatalogueColumns c){
+	size = c.size;
+	uIDs = Arrays.copyOf(c.uIDs, size);
+	artistIDs = Arrays.copyOf(c.artistIDs, size);
+	copies = Arrays.copyOf(c.copies, size);
+	available = Arrays.copyOf(c.available, size);
+	genres = Arrays.copyOf(c.genres, size);
+	rows = null;
+    }
+
+    /**
+     * Adds a row for a new item.
+     */
+    void add(Item item){
+	if(size == uIDs.length){
+	    int n = size * 2;
+	    uIDs = Arrays.copyOf(uIDs, n);
+	    artistIDs = Arrays.copyOf(artistIDs, n);
+	    copies = Arrays.copyOf(copies, n);
+	    available = Arrays.copyOf(available, n);
+	    genres = Arrays.copyOf(genres, n);
+	}
+	uIDs[size] = item.getUID();
+	artistIDs[size] = item.getArtistID();
+	copies[size] = item.getCopies();
+	available[size] = item.getAvailableCopies();
+	genres[size] = item.getGenre() != null ? (byte) item.getGenre().ordinal() : NO_GENRE;
+	rows.put(item.getUID(), size++);
+    }
+
+    /**
+     * Updates the available copies of an item already added. Rows of different items may be updated by different threads at once.
+     */
+    void availabilityChanged(Item item){
+	int row = rows.get(item.getUID());
+	if(row >= 0)
+	    available[row] = item.getAvailableCopies();
+    }
+
+    /**
+     * Takes a copy which will not change.
+     */
+    CatalogueColumns snapshot(){
+	return new CatalogueColumns(this);
+    }
+
+    /**
+     * Gets the number of items.
+     * @return the number of rows.
+     */
+    public int size(){
+	return size;
+    }
+
+    /**
+     * Gets the unique id of an item.
+     * @param row The item's row, between 0 and size() - 1.
+     * @return the unique id.
+     */
+    public int getUID(int row){
+	return uIDs[row];
+    }
+
+    /**
+     * Gets the artist id of an item.
+     * @param row The item's row, between 0 and size() - 1.
+     * @return the artist id, or 0 if the artist was not set.
+     */
+    public int getArtistID(int row){
+	return artistIDs[row];
+    }
+
+    /**
+     * Gets the genre of an item.
+     * @param row The item's row, between 0 and size() - 1.
+     * @return the genre, or null if the genre was not set.
+     */
+    public Item.Genre getGenre(int row){
+	return genres[row] == NO_GENRE ? null : GENRES[genres[row]];
+    }
+
+    /**
+     * Gets the number of copies of an item.
+     * @param row The item's row, between 0 and size() - 1.
+     * @return the number of copies.
+     */
+    public int getCopies(int row){
+	return copies[row];
+    }
+
+    /**
+     * Gets the number of available copies of an item.
+     * @param row The item's row, between 0 and size() - 1.
+     * @return the number of copies available.
+     */
+    public int getAvailableCopies(int row){
+	return available[row];
+    }
+
+    private int[] column(Column c){
+	return switch(c){
+	case ITEMS -> null;
+	case COPIES -> copies;
+	case AVAILABLE -> available;
+	};
+    }
+
+    private IntStream chunks(){
+	IntStream chunks = IntStream.range(0, (size + CHUNK - 1) / CHUNK);
+	return size > CHUNK ? chunks.parallel() : chunks;
+    }
+
+    /**
+     * Sums a column over every item.
+     * @param c The column to be summed.
+     * @return the total.
+     */
+    public long sum(Column c){
+	int[] col = column(c);
+	if(col == null)
+	    return size;
+	return chunks().mapToLong(k -> {
+		long s = 0;
+		for(int i = k * CHUNK, end = Math.min(size, i + CHUNK); i < end; i++)
+		    s += col[i];
+		return s;
+	    }).sum();
+    }
+
+    /**
+     * Sums a column over the items of each genre.
+     * @param c The column to be summed.
+     * @return the total for each genre; items whose genre was not set are left out.
+     */
+    public EnumMap<Item.Genre, Long> sumByGenre(Column c){
+	int[] col = column(c);
+	long[] sums = chunks().mapToObj(k -> {
+		long[] s = new long[GENRES.length + 1];
+		int end = Math.min(size, k * CHUNK + CHUNK);
+		if(col == null){
+		    for(int i = k * CHUNK; i < end; i++)
+			s[genres[i]]++;
+		}else{
+		    for(int i = k * CHUNK; i < end; i++)
+			s[genres[i]] += col[i];
+		}
+		return s;
+	    }).reduce(new long[GENRES.length + 1], CatalogueColumns::add);
+	EnumMap<Item.Genre, Long> byGenre = new EnumMap<>(Item.Genre.class);
+	for(Item.Genre g : GENRES)
+	    byGenre.put(g, sums[g.ordinal()]);
+	return byGenre;
+    }
+
+    private static long[] add(long[] a, long[] b){
+	long[] s = new long[a.length];
+	for(int i = 0; i < s.length; i++)
+	    s[i] = a[i] + b[i];
+	return s;
+    }
+
+    /**
+     * Sums a column over the items of each artist.
+     * @param c The column to be summed.
+     * @return the total for each artist id which has items; items whose artist was not set are counted under 0.
+     */
+    public Map<Integer, Long> sumByArtist(Column c){
+	int[] col = column(c);
+	return chunks().mapToObj(k -> {
+		//Artists are numbered in the order met, so the sums are a plain array
+		IntHashIndex slots = new IntHashIndex(256);
+		int[] ids = new int[256];
+		long[] s = new long[256];
+		int end = Math.min(size, k * CHUNK + CHUNK);
+		for(int i = k * CHUNK; i < end; i++){
+		    int slot = slots.get(artistIDs[i]);
+		    if(slot < 0){
+			slot = slots.size();
+			slots.put(artistIDs[i], slot);
+			if(slot == s.length){
+			    ids = Arrays.copyOf(ids, slot * 2);
+			    s = Arrays.copyOf(s, slot * 2);
+			}
+			ids[slot] = artistIDs[i];
+		    }
+		    s[slot] += col == null ? 1 : col[i];
+		}
+		HashMap<Integer, Long> partial = new HashMap<>(slots.size() * 2);
+		for(int slot = 0; slot < slots.size(); slot++)
+		    partial.put(ids[slot], s[slot]);
+		return partial;
+	    }).reduce((a, b) -> {
+		    HashMap<Integer, Long> big = a.size() >= b.size() ? a : b, small = big == a ? b : a;
+		    small.forEach((artist, sum) -> big.merge(artist, sum, Long::sum));
+		    return big;
+		}).orElseGet(HashMap::new);
+    }
+
+    /**
+     * Gets the fraction of copies of each genre which are available.
+     * @return available copies divided by copies for each genre which has copies.
+     */
+    public EnumMap<Item.Genre, Double> availabilityByGenre(){
+	EnumMap<Item.Genre, Long> all = sumByGenre(Column.COPIES);
+	EnumMap<Item.Genre, Long> in = sumByGenre(Column.AVAILABLE);
+	EnumMap<Item.Genre, Double> ratio = new EnumMap<>(Item.Genre.class);
+	for(Item.Genre g : GENRES){
+	    if(all.get(g) > 0)
+		ratio.put(g, (double) in.get(g) / all.get(g));
+	}
+	return ratio;
+    }
+}
@@ -0,0 +1,534 @@
+package library;
+import library.items.*;
+import library.people.*;
+import library.exceptions.*;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.IntStream;
+/**
+ * Imports items, artists and members from CSV or JSON Lines files into a Library.
+ * <p>
+ * The file type is picked by extension (".csv" or ".jsonl"). CSV files must start with a header row naming the columns; JSON Lines files hold one flat object per line. Field names are the same in both:
+ * <ul>
+ * <li>items: type (BOOK or MOVIE), title, author, director, genre, copies, pages, duration, description, subjects (an array, or ';' separated in CSV)</li>
+ * <li>artists: firstName, lastName</li>
+ * <li>members: firstName, lastName, memberID, passkey</li>
+ * </ul>
+ * Lines are read through NIO in batches; each batch is parsed and built in parallel. Everything is then handed to the library's bulk add, which sorts once, finds duplicates in one pass and inserts in one pass. Malformed and duplicate rows are reported and skipped; they never stop the import. A row is malformed if it cannot be parsed or if a builder or constructor refuses one of its values.
+ */
+public final class CatalogueImporter{
+    private static final int BATCH = 8192;
+    private static final int MAX_PROBLEMS = 10_000;
+
+    /**
+     * A row which could not be imported.
+     */
+    public static final class Problem{
+	private final long line;
+	private final String reason;
+
+	Problem(long line, String reason){
+	    this.line = line;
+	    this.reason = reason;
+	}
+
+	/**
+	 * Gets the line number.
+	 * @return The 1-based line of the file the row came from.
+	 */
+	public long getLine(){
+	    return line;
+	}
+
+	/**
+	 * Gets the reason.
+	 * @return Why the row was skipped.
+	 */
+	public String getReason(){
+	    return reason;
+	}
+
+	@Override
+	public String toString(){
+	    return "line " + line + ": " + reason;
+	}
+    }
+
+    /**
+     * The result of an import.
+     */
+    public static final class Report{
+	private long rows = 0;
+	private long added = 0;
+	private long malformed = 0;
+	private long duplicates = 0;
+	private final ArrayList<Problem> problems = new ArrayList<>();
+
+	private void problem(long line, String reason){
+	    if(problems.size() < MAX_PROBLEMS)
+		problems.add(new Problem(line, reason));
+	}
+
+	/**
+	 * Gets the number of data rows read.
+	 * @return the number of rows, not counting blank lines or the CSV header.
+	 */
+	public long getRows(){
+	    return rows;
+	}
+
+	/**
+	 * Gets the number of rows added to the library.
+	 * @return the number of rows added.
+	 */
+	public long getAdded(){
+	    return added;
+	}
+
+	/**
+	 * Gets the number of rows which could not be parsed.
+	 * @return the number of malformed rows.
+	 */
+	public long getMalformed(){
+	    return malformed;
+	}
+
+	/**
+	 * Gets the number of rows whose key was already in the library or earlier in the file.
+	 * @return the number of duplicate rows.
+	 */
+	public long getDuplicates(){
+	    return duplicates;
+	}
+
+	/**
+	 * Gets the skipped rows. At most 10,000 are kept.
+	 * @return the problems, in no particular order.
+	 */
+	public List<Problem> getProblems(){
+	    return Collections.unmodifiableList(problems);
+	}
+
+	@Override
+	public String toString(){
+	    return String.format("%d rows: %d added, %d malformed, %d duplicates", rows, added, malformed, duplicates);
+	}
+    }
+
+    /**
+     * Thrown by the row converters for a row that cannot be used.
+     */
+    private static final class MalformedRow extends Exception{
+	private static final long serialVersionUID = 64398177;
+	MalformedRow(String msg){
+	    super(msg, null, false, false);
+	}
+    }
+
+    @FunctionalInterface
+    private interface RowConverter<V>{
+	V convert(Map<String, Object> row) throws MalformedRow;
+    }
+
+    @FunctionalInterface
+    private interface BulkAdd<V>{
+	List<V> add(List<V> values) throws InvalidPermissionsError;
+    }
+
+    private CatalogueImporter(){}
+
+    /**
+     * Imports items.
+     * @param library The library to add to.
+     * @param staff Used to check correct permissions are sent to alter the library.
+     * @param file A .csv or .jsonl file of items.
+     * @return what was imported and what was skipped.
+     * @throws IOException if the file cannot be read.
+     * @throws InvalidPermissionsError if staff has invalid permissions
+     */
+    public static Report importItems(Library library, Staff staff, Path file) throws IOException, InvalidPermissionsError{
+	library.validateStaff(staff);
+	return run(file, CatalogueImporter::toItem, items -> library.addItems(staff, items));
+    }
+
+    /**
+     * Imports artists.
+     * @param library The library to add to.
+     * @param staff Used to check correct permissions are sent to alter the library.
+     * @param file A .csv or .jsonl file of artists.
+     * @return what was imported and what was skipped.
+     * @throws IOException if the file cannot be read.
+     * @throws InvalidPermissionsError if staff has invalid permissions
+     */
+    public static Report importArtists(Library library, Staff staff, Path file) throws IOException, InvalidPermissionsError{
+	library.validateStaff(staff);
+	return run(file, CatalogueImporter::toArtist, artists -> library.addArtists(staff, artists));
+    }
+
+    /**
+     * Imports members.
+     * @param library The library to add to.
+     * @param staff Used to check correct permissions are sent to alter the library.
+     * @param file A .csv or .jsonl file of members.
+     * @return what was imported and what was skipped.
+     * @throws IOException if the file cannot be read.
+     * @throws InvalidPermissionsError if staff has invalid permissions
+     */
+    public static Report importMembers(Library library, Staff staff, Path file) throws IOException, InvalidPermissionsError{
+	library.validateStaff(staff);
+	return run(file, CatalogueImporter::toMember, members -> library.addMembers(staff, members));
+    }
+
+    private static <V> Report run(Path file, RowConverter<V> converter, BulkAdd<V> bulkAdd) throws IOException, InvalidPermissionsError{
+	String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+	boolean csv;
+	if(name.endsWith(".csv"))
+	    csv = true;
+	else if(name.endsWith(".jsonl"))
+	    csv = false;
+	else
+	    throw new IOException("Unknown file type: " + file);
+
+	Report report = new Report();
+	ArrayList<V> parsed = new ArrayList<>();
+	IdentityHashMap<V, Long> lines = new IdentityHashMap<>();
+	try(BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)){
+	    String[] header = null;
+	    if(csv){
+		String h = in.readLine();
+		if(h == null)
+		    return report;
+		header = splitCsv(h).toArray(new String[0]);
+	    }
+	    long lineNo = csv ? 1 : 0;
+	    String[] batch = new String[BATCH];
+	    while(true){
+		int n = 0;
+		long first = lineNo + 1;
+		String line;
+		while(n < BATCH && (line = in.readLine()) != null)
+		    batch[n++] = line;
+		if(n == 0)
+		    break;
+		lineNo += n;
+		Object[] results = new Object[n]; //V, or a String reason
+		final String[] cols = header;
+		final int count = n;
+		IntStream.range(0, count).parallel().forEach(i -> {
+			String l = batch[i];
+			if(l.isBlank())
+			    return;
+			try{
+			    results[i] = converter.convert(cols != null ? csvRow(cols, l) : Json.parseObject(l));
+			}catch(MalformedRow e){
+			    results[i] = e.getMessage();
+			}catch(RuntimeException e){ //A builder or constructor refused a value: the row is malformed, the import goes on
+			    results[i] = e.getMessage() != null ? e.getMessage() : e.toString();
+			}
+		    });
+		for(int i = 0; i < count; i++){
+		    Object r = results[i];
+		    if(r == null)
+			continue;
+		    report.rows++;
+		    if(r instanceof String reason){
+			report.malformed++;
+			report.problem(first + i, reason);
+		    }else{
+			@SuppressWarnings("unchecked")
+			V v = (V) r;
+			parsed.add(v);
+			lines.put(v, first + i);
+		    }
+		}
+	    }
+	}
+	List<V> rejected = bulkAdd.add(parsed);
+	report.duplicates = rejected.size();
+	report.added = parsed.size() - rejected.size();
+	for(V v : rejected)
+	    report.problem(lines.get(v), "duplicate of an existing entry");
+	return report;
+    }
+
+    private static Map<String, Object> csvRow(String[] header, String line) throws MalformedRow{
+	List<String> fields = splitCsv(line);
+	if(fields.size() > header.length)
+	    throw new MalformedRow("expected " + header.length + " fields, found " + fields.size());
+	HashMap<String, Object> row = new HashMap<>();
+	for(int i = 0; i < fields.size(); i++){
+	    String f = fields.get(i);
+	    if(!f.isEmpty())
+		row.put(header[i].trim(), f);
+	}
+	Object subjects = row.get("subjects");
+	if(subjects instanceof String s)
+	    row.put("subjects", List.of(s.split(";")));
+	return row;
+    }
+
+    /**
+     * Splits a CSV line. Fields may be quoted, with "" standing for a quote inside a quoted field.
+     */
+    private static List<String> splitCsv(String line){
+	ArrayList<String> fields = new ArrayList<>();
+	StringBuilder f = new StringBuilder();
+	boolean quoted = false;
+	for(int i = 0; i < line.length(); i++){
+	    char c = line.charAt(i);
+	    if(quoted){
+		if(c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"'){
+		    f.append('"');
+		    i++;
+		}else if(c == '"'){
+		    quoted = false;
+		}else{
+		    f.append(c);
+		}
+	    }else if(c == '"'){
+		quoted = true;
+	    }else if(c == ','){
+		fields.add(f.toString());
+		f.setLength(0);
+	    }else{
+		f.append(c);
+	    }
+	}
+	fields.add(f.toString());
+	return fields;
+    }
+
+    private static String text(Map<String, Object> row, String key, boolean required) throws MalformedRow{
+	Object v = row.get(key);
+	if(v == null){
+	    if(required)
+		throw new MalformedRow("missing " + key);
+	    return null;
+	}
+	if(!(v instanceof String s))
+	    throw new MalformedRow(key + " is not text");
+	return s;
+    }
+
+    private static int number(Map<String, Object> row, String key) throws MalformedRow{
+	Object v = row.get(key);
+	if(v == null)
+	    return 0;
+	try{
+	    return Integer.parseInt(v.toString().trim());
+	}catch(NumberFormatException e){
+	    throw new MalformedRow(key + " is not a whole number: " + v);
+	}
+    }
+
+    private static Item toItem(Map<String, Object> row) throws MalformedRow{
+	String type = text(row, "type", true).trim().toUpperCase(Locale.ROOT);
+	String title = text(row, "title", true);
+	Item.Genre genre = null;
+	String g = text(row, "genre", false);
+	if(g != null){
+	    try{
+		genre = Item.Genre.valueOf(g.trim().toUpperCase(Locale.ROOT));
+	    }catch(IllegalArgumentException e){
+		throw new MalformedRow("unknown genre " + g);
+	    }
+	}
+	String[] subjects = new String[0];
+	Object s = row.get("subjects");
+	if(s instanceof List<?> l){
+	    subjects = new String[l.size()];
+	    for(int i = 0; i < subjects.length; i++){
+		if(!(l.get(i) instanceof String str))
+		    throw new MalformedRow("subjects must be text");
+		subjects[i] = str.trim();
+	    }
+	}else if(s != null){
+	    throw new MalformedRow("subjects must be a list");
+	}
+	boolean hasCopies = row.get("copies") != null; //Otherwise the builders' default is kept
+	int copies = number(row, "copies");
+	if(copies < 0)
+	    throw new MalformedRow("negative copies");
+	switch(type){
+	    case "BOOK" -> {
+		Book.BookBuilder b = new Book.BookBuilder(title).setDescription(text(row, "description", false))
+		    .setSubjects(subjects).setGenre(genre).setAuthor(text(row, "author", false)).setPages(number(row, "pages"));
+		if(hasCopies)
+		    b.setCopies(copies);
+		return b.build();
+	    }
+	    case "MOVIE" -> {
+		Movie.MovieBuilder b = new Movie.MovieBuilder(title).setDescription(text(row, "description", false))
+		    .setSubjects(subjects).setGenre(genre).setDirector(text(row, "director", false)).setDuration(number(row, "duration"));
+		if(hasCopies)
+		    b.setCopies(copies);
+		return b.build();
+	    }
+	    default -> throw new MalformedRow("unknown item type " + type);
+	}
+    }
+
+    private static Artist toArtist(Map<String, Object> row) throws MalformedRow{
+	return new Artist(text(row, "firstName", true), text(row, "lastName", true));
+    }
+
+    private static Member toMember(Map<String, Object> row) throws MalformedRow{
+	return new Member(text(row, "firstName", true), text(row, "lastName", true), text(row, "memberID", true), text(row, "passkey", true));
+    }
+
+    /**
+     * A parser for the flat JSON objects found in JSON Lines files: string, number, boolean and null values, and arrays of those.
+     */
+    private static final class Json{
+	private final String s;
+	private int pos = 0;
+
+	private Json(String s){
+	    this.s = s;
+	}
+
+	static Map<String, Object> parseObject(String line) throws MalformedRow{
+	    Json j = new Json(line);
+	    j.skipSpace();
+	    Map<String, Object> obj = j.object();
+	    j.skipSpace();
+	    if(j.pos != line.length())
+		throw j.error("trailing characters");
+	    return obj;
+	}
+
+	private MalformedRow error(String msg){
+	    return new MalformedRow("invalid JSON at column " + (pos + 1) + ": " + msg);
+	}
+
+	private void skipSpace(){
+	    while(pos < s.length() && Character.isWhitespace(s.charAt(pos)))
+		pos++;
+	}
+
+	private void expect(char c) throws MalformedRow{
+	    skipSpace();
+	    if(pos >= s.length() || s.charAt(pos) != c)
+		throw error("expected '" + c + "'");
+	    pos++;
+	}
+
+	private boolean peek(char c){
+	    skipSpace();
+	    return pos < s.length() && s.charAt(pos) == c;
+	}
+
+	private Map<String, Object> object() throws MalformedRow{
+	    HashMap<String, Object> obj = new HashMap<>();
+	    expect('{');
+	    if(peek('}')){
+		pos++;
+		return obj;
+	    }
+	    do{
+		skipSpace();
+		String key = string();
+		expect(':');
+		Object v = value();
+		if(v != null)
+		    obj.put(key, v);
+	    }while(comma());
+	    expect('}');
+	    return obj;
+	}
+
+	private boolean comma(){
+	    if(peek(',')){
+		pos++;
+		return true;
+	    }
+	    return false;
+	}
+
+	private Object value() throws MalformedRow{
+	    skipSpace();
+	    if(pos >= s.length())
+		throw error("missing value");
+	    char c = s.charAt(pos);
+	    if(c == '"')
+		return string();
+	    if(c == '['){
+		pos++;
+		ArrayList<Object> list = new ArrayList<>();
+		if(peek(']')){
+		    pos++;
+		    return list;
+		}
+		do{
+		    list.add(value());
+		}while(comma());
+		expect(']');
+		return list;
+	    }
+	    if(c == '{')
+		throw error("nested objects are not supported");
+	    int start = pos;
+	    while(pos < s.length() && ",]} \t".indexOf(s.charAt(pos)) < 0)
+		pos++;
+	    String word = s.substring(start, pos);
+	    switch(word){
+		case "null": return null;
+		case "true": return Boolean.TRUE;
+		case "false": return Boolean.FALSE;
+		default:
+		    if(word.isEmpty() || !word.matches("-?[0-9]+"))
+			throw error("unexpected '" + word + "'");
+		    return word;
+	    }
+	}
+
+	private String string() throws MalformedRow{
+	    if(pos >= s.length() || s.charAt(pos) != '"')
+		throw error("expected a string");
+	    pos++;
+	    StringBuilder sb = new StringBuilder();
+	    while(pos < s.length()){
+		char c = s.charAt(pos++);
+		if(c == '"')
+		    return sb.toString();
+		if(c != '\\'){
+		    sb.append(c);
+		    continue;
+		}
+		if(pos >= s.length())
+		    break;
+		char e = s.charAt(pos++);
+		switch(e){
+		    case '"', '\\', '/' -> sb.append(e);
+		    case 'b' -> sb.append('\b');
+		    case 'f' -> sb.append('\f');
+		    case 'n' -> sb.append('\n');
+		    case 'r' -> sb.append('\r');
+		    case 't' -> sb.append('\t');
+		    case 'u' -> {
+			if(pos + 4 > s.length())
+			    throw error("bad escape");
+			try{
+			    sb.append((char) Integer.parseInt(s.substring(pos, pos + 4), 16));
+			}catch(NumberFormatException ex){
+			    throw error("bad escape");
+			}
+			pos += 4;
+		    }
+		    default -> throw error("bad escape");
+		}
+	    }
+	    throw error("unterminated string");
+	}
+    }
+}
@@ -0,0 +1,93 @@
+package library;
+import library.items.Item;
+import library.structures.IntHashIndex;
+import java.util.EnumMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+/**
+ * Counts of items, copies and available copies for each genre and each artist, kept up to date as items are added, checked out and returned, so that a group's totals are read in O(1) instead of by a scan.
+ * <p>
+ * Check outs and returns of different items run at once in a concurrent Library. Genres are few and each is shared by many items, so their counters are LongAdders; artists are many, and theirs are slots of an AtomicLongArray found through an IntHashIndex. New slots are only made while an item is added, which excludes every other change.
+ */
+final class CatalogueTotals{
+    private static final int ITEMS = 0, COPIES = 1, AVAILABLE = 2, FIELDS = 3;
+
+    private final EnumMap<Item.Genre, LongAdder[]> byGenre = new EnumMap<>(Item.Genre.class);
+    private final IntHashIndex artistSlots = new IntHashIndex(1024);
+    private volatile AtomicLongArray byArtist = new AtomicLongArray(1024 * FIELDS);
+
+    /**
+     * Constructs CatalogueTotals with every count zero.
+     */
+    CatalogueTotals(){
+	for(Item.Genre g : Item.Genre.values()){
+	    LongAdder[] counts = new LongAdder[FIELDS];
+	    for(int i = 0; i < FIELDS; i++)
+		counts[i] = new LongAdder();
+	    byGenre.put(g, counts);
+	}
+    }
+
+    /**
+     * Counts a newly added item.
+     */
+    void itemAdded(Item item){
+	if(item.getGenre() != null){
+	    LongAdder[] counts = byGenre.get(item.getGenre());
+	    counts[ITEMS].increment();
+	    counts[COPIES].add(item.getCopies());
+	    counts[AVAILABLE].add(item.getAvailableCopies());
+	}
+	int slot = artistSlots.get(item.getArtistID());
+	if(slot < 0){
+	    slot = artistSlots.size();
+	    artistSlots.put(item.getArtistID(), slot);
+	    AtomicLongArray counts = byArtist;
+	    if((slot + 1) * FIELDS > counts.length()){
+		AtomicLongArray grown = new AtomicLongArray(counts.length() * 2);
+		for(int i = 0; i < counts.length(); i++)
+		    grown.set(i, counts.get(i));
+		byArtist = grown;
+	    }
+	}
+	AtomicLongArray counts = byArtist;
+	counts.incrementAndGet(slot * FIELDS + ITEMS);
+	counts.addAndGet(slot * FIELDS + COPIES, item.getCopies());
+	counts.addAndGet(slot * FIELDS + AVAILABLE, item.getAvailableCopies());
+    }
+
+    /**
+     * Counts a change in an item's available copies.
+     * @param oldItem The item before.
+     * @param newItem The item after.
+     */
+    void availabilityChanged(Item oldItem, Item newItem){
+	int delta = newItem.getAvailableCopies() - oldItem.getAvailableCopies();
+	if(delta == 0)
+	    return;
+	if(newItem.getGenre() != null)
+	    byGenre.get(newItem.getGenre())[AVAILABLE].add(delta);
+	int slot = artistSlots.get(newItem.getArtistID());
+	if(slot >= 0)
+	    byArtist.addAndGet(slot * FIELDS + AVAILABLE, delta);
+    }
+
+    /**
+     * Gets the totals of a genre.
+     */
+    Totals genre(Item.Genre genre){
+	LongAdder[] counts = byGenre.get(genre);
+	return new Totals(counts[ITEMS].sum(), counts[COPIES].sum(), counts[AVAILABLE].sum());
+    }
+
+    /**
+     * Gets the totals of an artist's items.
+     */
+    Totals artist(int artistID){
+	int slot = artistSlots.get(artistID);
+	if(slot < 0)
+	    return new Totals(0, 0, 0);
+	AtomicLongArray counts = byArtist;
+	return new Totals(counts.get(slot * FIELDS + ITEMS), counts.get(slot * FIELDS + COPIES), counts.get(slot * FIELDS + AVAILABLE));
+    }
+}
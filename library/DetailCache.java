@@ -0,0 +1,64 @@
+package library;
+import library.items.Item;
+import library.people.Artist;
+/**
+ * A bounded cache of rendered item details, keyed by uID. Each slot holds one entry; an entry is only used if the Item and Artist it was rendered from are still the ones in the Library, so a check out or return (which replaces the Item) makes it stale.
+ * Entries are immutable, so the slots can be read and replaced without locking.
+ */
+final class DetailCache{
+    private static final class Entry{
+	final int uID;
+	final Item item;
+	final Artist artist;
+	final String text;
+	Entry(int uID, Item item, Artist artist, String text){
+	    this.uID = uID;
+	    this.item = item;
+	    this.artist = artist;
+	    this.text = text;
+	}
+    }
+
+    private final Entry[] slots;
+    private final int mask;
+
+    /**
+     * Constructs a DetailCache.
+     * @param capacity The number of slots; rounded up to a power of two.
+     */
+    DetailCache(int capacity){
+	int n = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+	slots = new Entry[n];
+	mask = n - 1;
+    }
+
+    private int slot(int uID){
+	int h = uID * 0x9E3779B9;
+	return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * Gets the rendered details for an item.
+     * @return the cached text, or null if there is no entry or it was rendered from a different Item or Artist.
+     */
+    String get(int uID, Item item, Artist artist){
+	Entry e = slots[slot(uID)];
+	if(e != null && e.uID == uID && e.item == item && e.artist == artist)
+	    return e.text;
+	return null;
+    }
+
+    void put(int uID, Item item, Artist artist, String text){
+	slots[slot(uID)] = new Entry(uID, item, artist, text);
+    }
+
+    /**
+     * Drops the entry for the given uID, if there is one.
+     */
+    void invalidate(int uID){
+	int s = slot(uID);
+	Entry e = slots[s];
+	if(e != null && e.uID == uID)
+	    slots[s] = null;
+    }
+}
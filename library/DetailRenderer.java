@@ -0,0 +1,87 @@
+package library;
+import library.items.*;
+import library.people.Artist;
+/**
+ * Renders the detailed description of an Item (see getDetailedItemInfo). The layout is fixed, so it is written directly instead of going through String.format.
+ */
+public final class DetailRenderer{
+    private static final String NEWLINE = System.lineSeparator();
+
+    private DetailRenderer(){}
+
+    /**
+     * Renders the details of an item into a buffer sized from the item, so it is filled without growing in the common case.
+     * @param uID unique ID which was looked up.
+     * @param item The item, or null if nothing was found.
+     * @param artist The author or director of the item, or null if they are not in the Library.
+     * @return the rendered details.
+     */
+    public static String render(int uID, Item item, Artist artist){
+	StringBuilder sb = new StringBuilder(estimate(item, artist));
+	render(uID, item, artist, sb);
+	return sb.toString();
+    }
+
+    /**
+     * Estimates the length of an item's details: the fixed labels plus the lengths of its text fields.
+     */
+    private static int estimate(Item item, Artist artist){
+	if(item == null)
+	    return 48;
+	int n = 192;
+	if(item.getTitle() != null)
+	    n += item.getTitle().length();
+	if(item.getDescription() != null)
+	    n += item.getDescription().length();
+	if(artist != null)
+	    n += 32;
+	for(int i = 0; i < item.getSubjectCount(); i++){
+	    String subject = item.getSubject(i);
+	    n += 2 + (subject != null ? subject.length() : 4);
+	}
+	return n;
+    }
+
+    /**
+     * Renders the details of an item into the given buffer.
+     * @param uID unique ID which was looked up.
+     * @param item The item, or null if nothing was found.
+     * @param artist The author or director of the item, or null if they are not in the Library.
+     * @param sb Buffer the details are appended to.
+     */
+    public static void render(int uID, Item item, Artist artist, StringBuilder sb){
+	sb.append("Details for 0x").append(Integer.toHexString(uID)).append(": ");
+	if(item == null){
+	    sb.append("~There's nothing here~");
+	    return;
+	}
+	sb.append(NEWLINE).append("\tTitle: ").append(item.getTitle()).append(NEWLINE);
+	if(artist != null) sb.append("\tAuthor: ").append(artist.toString()).append(NEWLINE);
+	if(item.getDescription() != null) sb.append("\tDescription: ").append(item.getDescription()).append(NEWLINE);
+	if(item.getGenre() != null) sb.append("\tGenre: ").append(item.getGenre().toString()).append(NEWLINE);
+	if(item instanceof Book b){
+	    sb.append("\tPages:").append(b.getPageCount()).append(NEWLINE);
+	}else if(item instanceof Movie m){
+	    int duration = m.getDuration();
+	    sb.append("\tRuntime: ");
+	    if(duration / 3600 > 0){
+		sb.append(duration / 3600).append("hr ");
+		duration %= 3600;
+	    }
+	    if(duration / 60 > 0){
+		sb.append(duration / 60).append("m ");
+		duration %= 60;
+	    }
+	    sb.append(duration).append('s').append(NEWLINE);
+	}
+	sb.append("\tCopies: (").append(item.getAvailableCopies()).append('/').append(item.getCopies()).append(')').append(NEWLINE);
+	sb.append("\tSubjects: [");
+	for(int i = 0; i < item.getSubjectCount(); i++){
+	    if(i > 0)
+		sb.append(", ");
+	    sb.append(item.getSubject(i));
+	}
+	sb.append(']').append(NEWLINE);
+	sb.append("\tUID: 0x").append(Integer.toHexString(item.getUID())).append(NEWLINE);
+    }
+}
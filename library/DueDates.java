@@ -0,0 +1,157 @@
+package library;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+/**
+ * The loans of a Library, in a concurrent skip list ordered by due date.
+ * <p>
+ * The overdue loans are always at the front of the list, so finding them takes time proportional to how many there are rather than to the number of loans. A sweep remembers the time it was run for and starts the next one from there, so each loan is reported by one sweep only and a sweep costs a search plus the loans it reports.
+ * <p>
+ * Loans are also kept by member and item, so that a return can find its loan without searching the list. A member with several copies of an item returns the one due first.
+ * <p>
+ * Lending and returning take no lock, so check outs of different items do not wait on each other here; only sweeps, and loans made already due before the last sweep, share the lock guarding the sweep's place.
+ */
+final class DueDates{
+    private final ConcurrentSkipListMap<Loan, Loan> byDue = new ConcurrentSkipListMap<>();
+    //Each array is replaced rather than changed, so readers may use it without a lock
+    private final ConcurrentHashMap<Long, Loan[]> byLoan = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    //Guards sweptTo and late
+    private final ReentrantLock lock = new ReentrantLock();
+    //Loans due before this have been reported by a sweep, except those in late
+    private volatile long sweptTo = Long.MIN_VALUE;
+    //Loans made already due before sweptTo, which the next sweep would otherwise skip
+    private final ArrayList<Loan> late = new ArrayList<>();
+
+    private static long key(int memberID, int uID){
+	return ((long)memberID << 32) | (uID & 0xffffffffL);
+    }
+
+    /**
+     * Records a loan.
+     * @param due When the copy is due back, in milliseconds since the epoch.
+     * @return the new Loan.
+     */
+    Loan lent(int memberID, int uID, long due){
+	Loan loan = new Loan(memberID, uID, due, sequence.getAndIncrement());
+	byDue.put(loan, loan);
+	byLoan.merge(key(memberID, uID), new Loan[]{loan}, (loans, one) -> {
+		Loan[] more = Arrays.copyOf(loans, loans.length + 1);
+		more[loans.length] = loan;
+		return more;
+	    });
+	//A sweep moves sweptTo before it walks the list, so a loan it may have missed is seen here
+	if(due < sweptTo){
+	    lock.lock();
+	    try{
+		if(due < sweptTo)
+		    late.add(loan);
+	    }finally{
+		lock.unlock();
+	    }
+	}
+	return loan;
+    }
+
+    /**
+     * Removes the loan, due first, of a copy of an item to a member.
+     * @return the loan removed, or null if the member has no copy of the item.
+     */
+    Loan returned(int memberID, int uID){
+	Loan[] removed = new Loan[1];
+	byLoan.computeIfPresent(key(memberID, uID), (k, loans) -> {
+		int first = 0;
+		for(int i = 1; i < loans.length; i++){
+		    if(loans[i].compareTo(loans[first]) < 0)
+			first = i;
+		}
+		removed[0] = loans[first];
+		if(loans.length == 1)
+		    return null;
+		Loan[] fewer = new Loan[loans.length - 1];
+		System.arraycopy(loans, 0, fewer, 0, first);
+		System.arraycopy(loans, first + 1, fewer, first, fewer.length - first);
+		return fewer;
+	    });
+	if(removed[0] != null)
+	    byDue.remove(removed[0]);
+	return removed[0];
+    }
+
+    /**
+     * Copies the loans of the items with uIDs from low to high (inclusive) into an empty DueDates, along with the place the last sweep reached, so no loan is reported twice. Neither may be in use meanwhile.
+     * @param into The DueDates to copy into.
+     */
+    void copyRange(DueDates into, int low, int high){
+	for(Loan loan : byDue.keySet()){
+	    if(loan.getUID() >= low && loan.getUID() <= high)
+		into.byDue.put(loan, loan);
+	}
+	byLoan.forEach((key, loans) -> {
+		if(loans[0].getUID() >= low && loans[0].getUID() <= high)
+		    into.byLoan.put(key, loans);
+	    });
+	for(Loan loan : late){
+	    if(loan.getUID() >= low && loan.getUID() <= high)
+		into.late.add(loan);
+	}
+	into.sequence.set(sequence.get());
+	into.sweptTo = sweptTo;
+    }
+
+    /**
+     * Gets the loans of a member's copies of an item.
+     * @return the loans, in order of due date; empty if there are none.
+     */
+    List<Loan> loans(int memberID, int uID){
+	Loan[] loans = byLoan.get(key(memberID, uID));
+	if(loans == null)
+	    return List.of();
+	Loan[] copy = loans.clone();
+	Arrays.sort(copy);
+	return Arrays.asList(copy);
+    }
+
+    /**
+     * Gets every loan due before asOf, walking the list from the front until it reaches one which is not.
+     * @param asOf The time, in milliseconds since the epoch.
+     * @return the overdue loans, in order of due date.
+     */
+    List<Loan> overdue(long asOf){
+	return new ArrayList<>(byDue.headMap(new Loan(0, 0, asOf, Long.MIN_VALUE)).values());
+    }
+
+    /**
+     * Gets the loans which have become overdue since the last sweep: those due before asOf but not before the time the last sweep was run for. Sweeping for a time earlier than the last changes nothing.
+     * @param asOf The time, in milliseconds since the epoch.
+     * @return the newly overdue loans still outstanding, in order of due date.
+     */
+    List<Loan> sweep(long asOf){
+	lock.lock();
+	try{
+	    ArrayList<Loan> found = new ArrayList<>();
+	    for(Loan loan : late){
+		if(byDue.containsKey(loan) && loan.markSwept()) //Not returned, nor found by the sweep which put it here
+		    found.add(loan);
+	    }
+	    late.clear();
+	    long from = sweptTo;
+	    if(asOf > from){
+		//Moved before the walk: a loan lent meanwhile is either in the list by the time the walk reaches it or is added to late
+		sweptTo = asOf;
+		for(Loan loan : byDue.subMap(new Loan(0, 0, from, Long.MIN_VALUE), new Loan(0, 0, asOf, Long.MIN_VALUE)).keySet()){
+		    if(loan.markSwept())
+			found.add(loan);
+		}
+	    }
+	    found.sort(null);
+	    return found;
+	}finally{
+	    lock.unlock();
+	}
+    }
+}
@@ -0,0 +1,94 @@
+package library;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantLock;
+/**
+ * The available copies of a heavily borrowed item, spread over several cells so that concurrent check outs of the same item do not all update one counter.
+ * <p>
+ * A check out takes a copy from the cell picked by its thread, moving on to the others only if that cell is empty; a return puts the copy back in its thread's cell. A copy is only taken from a cell which holds one, so no more copies are ever lent than exist. Each cell sits on its own cache line.
+ * <p>
+ * The Item in the catalogue is not updated on every change. Instead a change marks the count dirty and then, under the republish lock, writes the current total back unless another thread has done so since, so the catalogue lags the count by at most the changes in progress. The lock is held only to write the total and publish the change.
+ */
+final class HotCopies{
+    private static final int PAD = 16; //ints per cell, so cells are 64 bytes apart
+
+    private final AtomicIntegerArray cells;
+    private final int mask;
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private final ReentrantLock republishing = new ReentrantLock();
+
+    /**
+     * Constructs HotCopies.
+     * @param available The number of copies available, divided between the cells.
+     * @param stripes The number of cells; rounded up to a power of two.
+     */
+    HotCopies(int available, int stripes){
+	int n = Integer.highestOneBit(Math.max(2, stripes) - 1) << 1;
+	cells = new AtomicIntegerArray(n * PAD);
+	mask = n - 1;
+	for(int i = 0; i < n; i++)
+	    cells.set(i * PAD, available / n + (i < available % n ? 1 : 0));
+    }
+
+    /**
+     * Gives a cell count suited to an item with the given number of copies: enough for every processor to have its own, without spreading the copies so thin that check outs have to search.
+     */
+    static int stripesFor(int copies){
+	return Math.max(2, Math.min(Runtime.getRuntime().availableProcessors() * 2, copies / 8));
+    }
+
+    private int home(){
+	int h = (int) Thread.currentThread().threadId() * 0x9E3779B9;
+	return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * Takes a copy.
+     * @return true if a copy was taken; false if none are available.
+     */
+    boolean tryAcquire(){
+	int start = home();
+	for(int k = 0; k <= mask; k++){
+	    int i = ((start + k) & mask) * PAD;
+	    for(int v = cells.get(i); v > 0; v = cells.get(i)){
+		if(cells.compareAndSet(i, v, v - 1))
+		    return true;
+	    }
+	}
+	return false;
+    }
+
+    /**
+     * Puts back a copy taken with tryAcquire.
+     */
+    void release(){
+	cells.getAndIncrement(home() * PAD);
+    }
+
+    /**
+     * Gets the number of copies available.
+     * @return the sum of the cells; exact only if nothing is changing them.
+     */
+    int available(){
+	int sum = 0;
+	for(int i = 0; i <= mask; i++)
+	    sum += cells.get(i * PAD);
+	return sum;
+    }
+
+    void markDirty(){
+	dirty.set(true);
+    }
+
+    /**
+     * Claims the right to republish.
+     * @return true if the count was dirty; it is now clean.
+     */
+    boolean claimDirty(){
+	return dirty.getAndSet(false);
+    }
+
+    ReentrantLock republishLock(){
+	return republishing;
+    }
+}
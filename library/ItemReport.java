@@ -0,0 +1,70 @@
+package library;
+import library.items.Item;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+/**
+ * Writes listings of Items in the format used by the Library query methods ("header: item, item, ..."). Items are written one at a time, so a listing never has to be held in memory.
+ */
+public final class ItemReport{
+    private static final String SEPARATOR = ", ";
+    private static final String EMPTY = "~There's nothing here~";
+
+    private ItemReport(){}
+
+    /**
+     * Writes a listing to the given output.
+     * @param out Where the listing is written (e.g. a Writer or StringBuilder).
+     * @param header Text written before the items.
+     * @param items The items to be listed. The stream is closed once the listing is written.
+     * @param offset The number of items to skip.
+     * @param limit The maximum number of items to write.
+     * @return the number of items written.
+     * @throws IOException if out cannot be written to.
+     */
+    public static long write(Appendable out, CharSequence header, Stream<? extends Item> items, long offset, long limit) throws IOException{
+	out.append(header);
+	long written = 0;
+	try(Stream<? extends Item> s = items){
+	    Iterator<? extends Item> it = s.skip(offset).limit(limit).iterator();
+	    while(it.hasNext()){
+		if(written > 0)
+		    out.append(SEPARATOR);
+		out.append(it.next().toString());
+		written++;
+	    }
+	}
+	if(written == 0)
+	    out.append(EMPTY);
+	return written;
+    }
+
+    /**
+     * Writes a complete listing to the given output.
+     * @param out Where the listing is written.
+     * @param header Text written before the items.
+     * @param items The items to be listed.
+     * @return the number of items written.
+     * @throws IOException if out cannot be written to.
+     */
+    public static long write(Appendable out, CharSequence header, Stream<? extends Item> items) throws IOException{
+	return write(out, header, items, 0, Long.MAX_VALUE);
+    }
+
+    /**
+     * Builds a complete listing as a String.
+     * @param header Text written before the items.
+     * @param items The items to be listed.
+     * @return the listing.
+     */
+    public static String toString(CharSequence header, Stream<? extends Item> items){
+	StringBuilder sb = new StringBuilder(header);
+	try{
+	    write(sb, "", items);
+	}catch(IOException e){
+	    throw new UncheckedIOException(e); //StringBuilder never throws
+	}
+	return sb.toString();
+    }
+}
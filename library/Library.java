@@ -0,0 +1,1870 @@
+package library;
+import library.items.*;
+import library.people.*;
+import library.exceptions.*;
+import library.structures.*;
+import library.events.*;
+import library.storage.Journal;
+import library.storage.Snapshot;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.Objects;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+/**
+ *Class which represents a Library. The library contains Staff, Members, Artists, and Items. The ordered maps which store them are chosen when the Library is built (see Backend), so the same Library can run over an ordered list, a skip list or a B+tree.
+ *
+ */
+public class Library{
+    /**
+     *The structures a Library can store its data in.
+     */
+    public static enum Backend{
+	/**A linked list: O(n) lookups, kept for small libraries and comparison. A Bloom filter answers most lookups of absent keys.*/
+	ORDERED_LIST,
+	/**A skip list: O(log n) lookups, following a pointer per comparison. A Bloom filter answers most lookups of absent keys.*/
+	SKIP_LIST,
+	/**A skip list over blocks of up to 32 sorted int keys: O(log n) lookups, following a pointer per block.*/
+	UNROLLED_SKIP_LIST,
+	/**A B+tree with wide int-keyed nodes: O(log n) lookups which read a few contiguous arrays.*/
+	B_PLUS_TREE;
+
+	/**
+	 *Generates an empty map of this kind.
+	 *@return the new map.
+	 */
+	<V> OrderedMap<Integer, V> create(){
+	    return switch(this){
+		case ORDERED_LIST -> {
+		    OrderedList<Integer, V> l = new OrderedList<>();
+		    l.enableBloomFilter(); //A miss would otherwise walk the whole list
+		    yield l;
+		}
+		case SKIP_LIST -> {
+		    SkipList<Integer, V> l = new SkipList<>(SkipList.levelsFor(1 << 20));
+		    l.enableBloomFilter();
+		    yield l;
+		}
+		case UNROLLED_SKIP_LIST -> new UnrolledSkipList<>(SkipList.levelsFor(1 << 16));
+		case B_PLUS_TREE -> new BPlusTree<>();
+	    };
+	}
+    }
+
+    private final Backend backend;
+    private final OrderedMap<Integer, Item> catalogue;
+    private final OrderedMap<Integer, Staff> staffList;
+    private final OrderedMap<Integer, Member> memberList;
+    private final OrderedMap<Integer, Artist> artistList;
+    private volatile EventSink events = EventSink.DISCARD;
+    private final DetailCache details = new DetailCache(4096);
+    private final QueryCache listings = new QueryCache(256);
+    private final CatalogueColumns columns = new CatalogueColumns(4096);
+    private final CatalogueTotals totals = new CatalogueTotals();
+    //Item key => uID, so items can be found by key and an Item passed in is only taken for the one stored if their keys match
+    private final LongHashIndex keys = new LongHashIndex(4096);
+    private Journal journal = null;
+    private final ChangeFeed changes = new ChangeFeed(1 << 16);
+    private final LibraryLocks locks;
+    //Items with at least HOT_COPIES copies, in a concurrent Library; their available copies are counted here (see HotCopies)
+    private final ConcurrentHashMap<Integer, HotCopies> hot = new ConcurrentHashMap<>();
+    private static final int HOT_COPIES = 64;
+    //Waiting members, only for items which have any; each queue is guarded by its item's stripe
+    private final ConcurrentHashMap<Integer, ArrayDeque<Hold>> holds = new ConcurrentHashMap<>();
+    private final DueDates dueDates = new DueDates();
+    private volatile long loanMillis = Duration.ofDays(21).toMillis();
+
+    /**
+     *Constructor for creating a Library. A staff member must be supplied to guarantee the library can be altered.
+     *@param admin used to initialize the Library
+     *@param backend the structure the Library stores its data in.
+     */
+    public Library(Staff admin, Backend backend){
+	this(admin, backend, LibraryLocks.NONE);
+    }
+
+    /**
+     *Constructor for creating a Library guarded by the given locks. Only a SKIP_LIST Library may be shared between threads (see SL_Library.concurrent): its lists can have values replaced while they are read.
+     *@param admin used to initialize the Library
+     *@param backend the structure the Library stores its data in.
+     *@param locks the locks guarding the Library
+     */
+    Library(Staff admin, Backend backend, LibraryLocks locks){
+	this.backend = backend;
+	this.locks = locks;
+	catalogue = backend.create();
+	staffList = backend.create();
+	staffList.insert(admin.getStaffID(), admin);
+	memberList = backend.create();
+	artistList = backend.create();
+    }
+
+    /**
+     *Constructor for restoring a Library from a snapshot. Snapshots are read into skip lists, so the Library is a SKIP_LIST one.
+     *@param snapshot holds the collections of the Library
+     */
+    Library(Snapshot snapshot){
+	backend = Backend.SKIP_LIST;
+	locks = LibraryLocks.NONE;
+	SkipList<Integer, Item> c = snapshot.getCatalogue();
+	SkipList<Integer, Member> m = snapshot.getMembers();
+	c.enableBloomFilter();
+	m.enableBloomFilter();
+	catalogue = c;
+	staffList = snapshot.getStaff();
+	memberList = m;
+	artistList = snapshot.getArtists();
+	for(Item item : catalogue.values()){
+	    keys.put(item.getKey(), item.getUID());
+	    columns.add(item);
+	    totals.itemAdded(item);
+	}
+	long due = dueFromNow();
+	for(Member member : memberList.values()){ //Due dates are not saved; restored loans get a full loan period
+	    for(int uID : member.getCheckedOut()){
+		if(uID != -1)
+		    dueDates.lent(member.getMemberID(), uID, due);
+	    }
+	}
+    }
+
+    /**
+     *Returns the structure the Library stores its data in.
+     *@return the backend given when the Library was built.
+     */
+    public Backend getBackend(){
+	return backend;
+    }
+
+    /**
+     *Saves the Library to a snapshot file (see Snapshot for the format). If the Library is journaled, the snapshot records how much of the journal it holds and the journal is then emptied.
+     *@param staff Used to check correct permissions are sent to save the Library.
+     *@param path Where the snapshot is written. An existing file is replaced once the new snapshot is complete.
+     *@throws InvalidPermissionsError if staff has invalid permissions
+     *@throws IOException if the snapshot cannot be written
+     */
+    public void save(Staff staff, Path path) throws InvalidPermissionsError, IOException{
+	locks.writeLock();
+	try{
+	    isStaff(staff);
+	    long seq = journal != null ? journal.lastSequence() : 0;
+	    Snapshot.write(path, seq, staffList, memberList, artistList, catalogue);
+	    if(journal != null){
+		try{
+		    journal.reset();
+		}catch(InterruptedException e){
+		    Thread.currentThread().interrupt();
+		    throw new IOException("Interrupted while resetting the journal", e);
+		}
+	    }
+	}finally{
+	    locks.writeUnlock();
+	}
+    }
+
+    /**
+     *Replays the journal records a recovering Library does not hold yet, and from then on appends every change to the journal (see SL_Library.recover).
+     *@param journalPath The journal file; it is created if it does not exist.
+     *@param seq The sequence number of the last record the Library holds.
+     *@param policy When journal records are forced to disk.
+     *@param intervalMillis The interval used by Journal.Fsync.INTERVAL.
+     *@throws IOException if the journal cannot be read
+     */
+    void recoverJournal(Path journalPath, long seq, Journal.Fsync policy, long intervalMillis) throws IOException{
+	if(Files.exists(journalPath)){
+	    seq = Journal.replay(journalPath, seq, new Journal.Replayer(){
+		    public void addItem(Item item){ putItem(item); }
+		    public void addStaff(Staff staff){ putStaff(staff); }
+		    public void addMember(Member member){ putMember(member); }
+		    public void addArtist(Artist artist){ putArtist(artist); }
+		    public void checkOut(int memberID, int uID){ Library.this.checkOut(memberID, uID, null); }
+		    public void returnItem(int memberID, int uID){ returnCopy(memberID, uID, null); }
+		});
+	}
+	journal = Journal.open(journalPath, seq, policy, intervalMillis); //Numbered after the snapshot too, so the next recovery does not skip new records
+    }
+
+    /**
+     *Stops journaling, writing and forcing any records that are still buffered.
+     *@param staff Used to check correct permissions are sent to alter Library.
+     *@throws InvalidPermissionsError if staff has invalid permissions
+     *@throws IOException if the journal cannot be written
+     */
+    public void closeJournal(Staff staff) throws InvalidPermissionsError, IOException{
+	locks.writeLock();
+	try{
+	    isStaff(staff);
+	    if(journal != null){
+		journal.close();
+		journal = null;
+	    }
+	}finally{
+	    locks.writeUnlock();
+	}
+    }
+
+    /**
+     *Method which validates given staff member
+     *@param staff used to check if provided Staff object exists in the Library.
+     *@return if staff is validated, true is returned.
+     *@throws InvalidPermissionsError if staff has invalid permissions
+     */
+    public boolean validateStaff(Staff staff) throws InvalidPermissionsError{
+	return read(() -> isStaff(staff));
+    }
+
+    /**
+     *Method which validates given member
+     *@param member used to check if provided Member object exists in the Library.
+     *@return if member is validated, true is returned.
+     *@throws InvalidPermissionsError if member has invalid permissions
+     */
+    public boolean validateMember(Member member) throws InvalidPermissionsError{
+	return read(() -> isMember(member));
+    }
+
+    /**
+     *A read of the Library's lists.
+     */
+    @FunctionalInterface
+    private interface Read<R>{
+	R run() throws InvalidPermissionsError;
+    }
+
+    /**
+     *Runs a read without locking, then checks that no node was added while it ran. If one was, or the read failed in a way that may have been caused by a concurrent add, it is run again holding the structure lock shared.
+     *Check outs and returns do not invalidate the read: they replace single values, each of which is read whole.
+     */
+    private <R> R read(Read<R> body) throws InvalidPermissionsError{
+	long stamp = locks.tryOptimisticRead();
+	if(stamp != 0){
+	    try{
+		R r = body.run();
+		if(locks.validate(stamp))
+		    return r;
+	    }catch(InvalidPermissionsError | RuntimeException e){
+		if(locks.validate(stamp))
+		    throw e;
+	    }
+	}
+	locks.readLock();
+	try{
+	    return body.run();
+	}finally{
+	    locks.readUnlock();
+	}
+    }
+
+    /**
+     *Validates staff; the caller holds the structure lock.
+     */
+    private boolean isStaff(Staff staff) throws InvalidPermissionsError{
+	Staff s = staffList.get(staff.getStaffID());
+	if(s != null){
+	    return s.equals(staff);
+	}
+	throw new InvalidPermissionsError(staff.getName() + " does not have valid permissions!");
+    }
+
+    /**
+     *Validates member; the caller holds the structure lock.
+     */
+    private boolean isMember(Member member) throws InvalidPermissionsError{
+	Member m = memberList.get(member.getMemberID());
+	if(m != null){
+	    return m.equals(member);
+	}
+	throw new InvalidPermissionsError(member.getName() + " does not have valid permissions!");
+
+    }
+
+
+    /**
+     *Method which adds an Item to the Library
+     *@param staff Used to check correct permissions are sent to alter Library.
+     *@param item Item to be added.
+     *@return if the item is added, true is returned.
+     *@throws InvalidPermissionsError if staff has invalid permissions
+     *@throws DuplicateError if an item with the same uID or key exists in the Library. Different titles whose hashes collide have the same uID; give such items explicit IDs (see BookBuilder.setID).
+     *@throws IllegalArgumentException if the item's uID is -1, which marks an empty slot in a Member's checked out items; give it an explicit ID.
+     */
+    public boolean addItem(Staff staff, Item item) throws InvalidPermissionsError, DuplicateError{
+	locks.writeLock();
+	try{
+	    isStaff(staff);
+
+	    int uID = item.getUID();
+	    if(uID == -1)
+		throw new IllegalArgumentException(item.getTitle() + " cannot be stored under -1");
+	    Item present = catalogue.get(uID);
+	    if(present != null && present.getKey() != item.getKey())
+		throw new DuplicateError(String.format("%s has the same unique ID as %s (0x%x); build one with an explicit ID (see BookBuilder.setID)", item.getTitle(), present.getTitle(), uID));
+	    if(present != null || keys.containsKey(item.getKey())){//Cannot add duplicates!
+		throw new DuplicateError(uID + " is a duplicate!");
+	    }
+	    putItem(item);
+	    return true; 
+	}finally{
+	    locks.writeUnlock();
+	}
+    }
+
+    /**
+     *Method which adds an Artists to the Library
+     *@param staff Used to check correct permissions are sent to alter Library.
+     *@param artist Artist to be added.
+     *@return if the artist is added, true is returned.
+     *@throws InvalidPermissionsError if staff has invalid permissions
+     *@throws DuplicateError if artist with the same artistID exists in the Library
+     */
+    public boolean addArtist(Staff staff, Artist artist)throws InvalidPermissionsError, DuplicateError{
+	locks.writeLock();
+	try{
+	    isStaff(staff);
+	    int artistID = artist.getArtistID();
+	    Artist present = artistList.get(artistID);
+	    if(present != null && present.getKey() != artist.getKey())
+		throw new DuplicateError(String.format("%s has the same ID as %s (0x%x); create one with an explicit ID (see Artist(String, String, long))", artist.getName(), present.getName(), artistID));
+	    if(present != null){//Cannot add duplicates!
+		throw new DuplicateError(artistID + " is a duplicate!");
+	    }
+	    putArtist(artist);
+	    return true;
+	}finally{
+	    locks.writeUnlock();
+	}
+    }
+
+    /**
+     *Method which adds a Staff to the Library
+     *@param staff Used to check correct permissions are sent to alter Library.
+     *@param oStaff Staff to be added.
+     *@return if the staff is added, true is returned.
+     *@throws InvalidPermissionsError if staff has invalid permissions
+     *@throws DuplicateError if staff with the same staffID exists in the Library
+     */
+    public boolean addStaff(Staff staff, Staff oStaff) throws InvalidPermissionsError, DuplicateError{
+	locks.writeLock();
+	try{
+	    isStaff(staff);
+	    int staffID = oStaff.getStaffID();
+	    Staff present = staffList.get(staffID);
+	    if(present != null && present.getKey() != oStaff.getKey())
+		throw new DuplicateError(String.format("%s has the same ID as %s (0x%x); create one with an explicit ID (see Staff(String, String, long, String))", oStaff.getName(), present.getName(), staffID));
+	    if(present != null){//Cannot add duplicates!
+		throw new DuplicateError(staffID + " is a duplicate!");
+	    }
+	    putStaff(oStaff);
+	    return true;
+	}finally{
+	    locks.writeUnlock();
+	}
+    }
+
+    /**
+     *Method which adds a Member to the Library
+     *@param staff Used to check correct permissions are sent to alter Library.
+     *@param member Member to be added.
+     *@return if the artist is added, true is returned.
+     *@throws InvalidPermissionsError if staff has invalid permissions
+     *@throws DuplicateError if member with the same memberID exists in the Library
+     */
+    public boolean addMember(Staff staff, Member member)throws InvalidPermissionsError, DuplicateError{
+	locks.writeLock();
+	try{
+	    isStaff(staff);
+	    int memberID = member.getMemberID();
+	    Member present = memberList.get(memberID);
+	    if(present != null && present.getKey() != member.getKey())
+		throw new DuplicateError(String.format("%s has the same ID as %s (0x%x); create one with an explicit ID (see Member(String, String, long, String))", member.getName(), present.getName(), memberID));
+	    if(present != null){//Cannot add duplicates!
+		throw new DuplicateError(memberID + " is a duplicate!");
+	    }
+	    putMember(member);
+	    return true;
+	}finally{
+	    locks.writeUnlock();
+	}
+    }
+
+
+    /**
+     *Adds many Items to the Library at once. The items are sorted by uID and inserted in one pass over the catalogue, which is much cheaper than calling addItem for each.
+     *@param staff Used to check correct permissions are sent to alter Library.
+     *@param items Items to be added, in any order.
+     *@return the items which were not added because another item with the same uID or key is already in the Library or earlier in the batch, or because their uID is -1 (see addItem), in uID order.
+     *@throws InvalidPermissionsError if staff has invalid permissions
+     */
+    public List<Item> addItems(Staff staff, List<? extends Item> items) throws InvalidPermissionsError{
+	locks.writeLock();
+	try{
+	    isStaff(staff);
+	    ArrayList<Item> fresh = new ArrayList<>(items.size());
+	    ArrayList<Item> rejected = new ArrayList<>();
+	    for(Item item : items){
+		if(item.getUID() == -1 || keys.containsKey(item.getKey()))
+		    rejected.add(item);
+		else
+		    fresh.add(item);
+	    }
+	    rejected.addAll(bulkPut(fresh, Item::getUID, catalogue, this::journalAdd, this::itemAdded));
+	    rejected.sort(Comparator.comparingInt(Item::getUID));
+	    return rejected;
+	}finally{
+	    locks.writeUnlock();
+	}
+    }
+
+    /**
+     *Adds many Artists to the Library at once (see addItems).
+     *@param staff Used to check correct permissions are sent to alter Library.
+     *@param artists Artists to be added, in any order.
+     *@return the artists which were not added because their artistID is already in the Library or earlier in the batch.
+     *@throws InvalidPermissionsError if staff has invalid permissions
+     */
+    public List<Artist> addArtists(Staff staff, List<? extends Artist> artists) throws InvalidPermissionsError{
+	locks.writeLock();
+	try{
+	    isStaff(staff);
+	    return bulkPut(artists, Artist::getArtistID, artistList, this::journalAdd, this::artistAdded);
+	}finally{
+	    locks.writeUnlock();
+	}
+    }
+
+    /**
+     *Adds many Members to the Library at once (see addItems).
+     *@param staff Used to check correct permissions are sent to alter Library.
+     *@param members Members to be added, in any order.
+     *@return the members which were not added because their memberID is already in the Library or earlier in the batch.
+     *@throws InvalidPermissionsError if staff has invalid permissions
+     */
+    public List<Member> addMembers(Staff staff, List<? extends Member> members) throws InvalidPermissionsError{
+	locks.writeLock();
+	try{
+	    isStaff(staff);
+	    return bulkPut(members, Member::getMemberID, memberList, this::journalAdd, this::memberAdded);
+	}finally{
+	    locks.writeUnlock();
+	}
+    }
+
+    /**
+     *Checks out the Item from the Library
+     *@param staff Used to check correct permissions are sent to alter Library.
+     *@param member Member who is receiving the copy.
+     *@param item Item to be added.
+     *@return if the book can be checked out, true is returned; if the book cannot be checked out, false is returned.
+     *@throws InvalidPermissionsError if staff has invalid permissions
+     */
+    public boolean checkOutItem(Staff staff, Member member, Item item)throws InvalidPermissionsError{
+	return tryCheckOutItem(staff, member, item).isSuccess();
+    }
+
+    /**
+     *Checks out the Item from the Library, reporting why it could not be checked out instead of throwing. Failures are sent to the event sink.
+     *@param staff Used to check correct permissions are sent to alter Library.
+     *@param member Member who is receiving the copy.
+     *@param item Item to be checked out.
+     *@return SUCCESS if the item was checked out; NOT_FOUND if the item or member is not in the Library; UNAVAILABLE if there are no copies left.
+     *@throws InvalidPermissionsError if staff has invalid permissions
+     */
+    public Outcome tryCheckOutItem(Staff staff, Member member, Item item)throws InvalidPermissionsError{
+	locks.readLock();
+	try{
+	    isStaff(staff);
+	    isMember(member);
+	    int memberID = member.getMemberID(), uID = uidOf(item);
+	    HotCopies h = hotCopies(uID);
+	    if(h != null)
+		return checkOutHot(memberID, uID, item, h);
+	    locks.lockLoan(uID, memberID);
+	    try{
+		return checkOut(memberID, uID, item);
+	    }finally{
+		locks.unlockLoan(uID, memberID);
+	    }
+	}finally{
+	    locks.readUnlock();
+	}
+    }
+
+    /**
+     *Returns checked out Item from the Library
+     *@param staff Used to check correct permissions are sent to alter Library.
+     *@param member Member who is returning the copy.
+     *@param item Item to be returned.
+     *@return if the book was successfully returned, true is returned; if the book cannot be returned, false is returned.
+     *@throws InvalidPermissionsError if staff has invalid permissions
+     */    
+    public boolean returnItem(Staff staff, Member member, Item item) throws InvalidPermissionsError{
+	return tryReturnItem(staff, member, item).isSuccess();
+    }
+
+    /**
+     *Returns checked out Item from the Library, reporting why it could not be returned instead of throwing. Failures are sent to the event sink.
+     *@param staff Used to check correct permissions are sent to alter Library.
+     *@param member Member who is returning the copy.
+     *@param item Item to be returned.
+     *@return SUCCESS if the item was returned; NOT_FOUND if the item or member is not in the Library; NOT_CHECKED_OUT if the member does not have the item; ALL_RETURNED if every copy is already in the Library.
+     *@throws InvalidPermissionsError if staff has invalid permissions
+     */
+    public Outcome tryReturnItem(Staff staff, Member member, Item item) throws InvalidPermissionsError{
+	ArrayList<Runnable> served = null;
+	locks.readLock();
+	try{
+	    isStaff(staff);
+	    isMember(member);
+	    int memberID = member.getMemberID(), uID = uidOf(item);
+	    HotCopies h = hotCopies(uID);
+	    Outcome outcome;
+	    if(h != null){
+		outcome = returnHot(memberID, uID, item, h);
+	    }else{
+		locks.lockLoan(uID, memberID);
+		try{
+		    outcome = returnCopy(memberID, uID, item);
+		}finally{
+		    locks.unlockLoan(uID, memberID);
+		}
+	    }
+	    if(outcome.isSuccess() && holds.containsKey(uID))
+		served = serveHolds(uID, null);
+	    return outcome;
+	}finally{
+	    locks.readUnlock();
+	    notifyHolds(served);
+	}
+    }
+
+    /**
+     *A member waiting for a copy of an item.
+     */
+    private static final class Hold{
+	final int memberID;
+	final CompletableFuture<Item> copy;
+	Hold(int memberID, CompletableFuture<Item> copy){
+	    this.memberID = memberID;
+	    this.copy = copy;
+	}
+    }
+
+    /**
+     *Places a hold on an Item for a Member. If a copy is available and nobody is waiting, it is checked out at once; otherwise the member joins the end of the item's queue, and when a copy is returned it is checked out to the first member in the queue instead of going back on the shelf.
+     *While anyone is waiting, checkOutItem fails for the item with UNAVAILABLE, so the queue is served in order.
+     *@param staff Used to check correct permissions are sent to alter Library.
+     *@param member Member who is waiting for the copy.
+     *@param item Item to be held.
+     *@return a future which completes with the Item (as it is after the check out) once the copy is checked out to member, or fails with a CheckOutException if the item or member is not in the Library. Cancelling it gives up the place in the queue; if a copy was lent to member just before, it is returned and goes to the next member waiting.
+     *@throws InvalidPermissionsError if staff or member has invalid permissions
+     */
+    public CompletableFuture<Item> placeHold(Staff staff, Member member, Item item) throws InvalidPermissionsError{
+	ArrayList<Runnable> served = null;
+	locks.readLock();
+	try{
+	    isStaff(staff);
+	    isMember(member);
+	    int memberID = member.getMemberID(), uID = uidOf(item);
+	    CompletableFuture<Item> copy = new CompletableFuture<>();
+	    locks.lockItem(uID);
+	    try{
+		if(catalogue.get(uID) == null)
+		    return CompletableFuture.failedFuture(new CheckOutException(item.getTitle() + " is not in the library"));
+		if(!holds.containsKey(uID)){
+		    HotCopies h = hotCopies(uID);
+		    Outcome outcome;
+		    locks.lockMember(memberID);
+		    try{
+			outcome = h != null ? lendHot(memberID, uID, item, h) : lend(memberID, uID, item);
+		    }finally{
+			locks.unlockMember(memberID);
+		    }
+		    if(outcome.isSuccess())
+			return CompletableFuture.completedFuture(catalogue.get(uID));
+		    if(outcome != Outcome.UNAVAILABLE)
+			return CompletableFuture.failedFuture(new CheckOutException(memberID + " is not a member"));
+		}
+		holds.computeIfAbsent(uID, k -> new ArrayDeque<>(2)).add(new Hold(memberID, copy));
+		if(hotCopies(uID) == null)
+		    return copy;
+	    }finally{
+		locks.unlockItem(uID);
+	    }
+	    served = serveHolds(uID, null); //A heavily borrowed item's copy may have come back without its stripe being taken
+	    return copy;
+	}finally{
+	    locks.readUnlock();
+	    notifyHolds(served);
+	}
+    }
+
+    /**
+     *Removes a Member's holds on an Item.
+     *@param staff Used to check correct permissions are sent to alter Library.
+     *@param member Member who no longer wants the item.
+     *@param item Item which was held.
+     *@return if member was waiting for item, true is returned.
+     *@throws InvalidPermissionsError if staff has invalid permissions
+     */
+    public boolean cancelHold(Staff staff, Member member, Item item) throws InvalidPermissionsError{
+	locks.readLock();
+	try{
+	    isStaff(staff);
+	    int memberID = member.getMemberID(), uID = uidOf(item);
+	    ArrayList<Hold> cancelled = new ArrayList<>();
+	    locks.lockItem(uID);
+	    try{
+		ArrayDeque<Hold> q = holds.get(uID);
+		if(q == null)
+		    return false;
+		q.removeIf(hold -> hold.memberID == memberID && cancelled.add(hold));
+		if(q.isEmpty())
+		    holds.remove(uID);
+	    }finally{
+		locks.unlockItem(uID);
+	    }
+	    for(Hold hold : cancelled)
+		hold.copy.cancel(false);
+	    return !cancelled.isEmpty();
+	}finally{
+	    locks.readUnlock();
+	}
+    }
+
+    /**
+     *Gets the number of members waiting for an Item.
+     *@param person Used to check correct permissions are sent to receive item information.
+     *@param item Item to be checked.
+     *@return the length of the item's queue.
+     *@throws InvalidPermissionsError if person has invalid permissions
+     */
+    public int getHoldCount(Person person, Item item) throws InvalidPermissionsError{
+	locks.readLock();
+	try{
+	    validatePerson(person);
+	    int uID = uidOf(item);
+	    locks.lockItem(uID);
+	    try{
+		ArrayDeque<Hold> q = holds.get(uID);
+		return q == null ? 0 : q.size();
+	    }finally{
+		locks.unlockItem(uID);
+	    }
+	}finally{
+	    locks.readUnlock();
+	}
+    }
+
+    /**
+     *Checks out available copies of an item to the members waiting for it, in order. The structure lock must be held.
+     *@param served Where the completions of the holds served are added, or null.
+     *@return served, or a new list if it was null and any hold was served. The caller runs them with notifyHolds once it has released the structure lock, so that callbacks never run under a lock (they may well call back into the Library).
+     */
+    private ArrayList<Runnable> serveHolds(int uID, ArrayList<Runnable> served){
+	while(true){
+	    Hold next;
+	    Item lent = null;
+	    locks.lockItem(uID);
+	    try{
+		ArrayDeque<Hold> q = holds.get(uID);
+		if(q == null)
+		    return served;
+		next = q.peek();
+		if(!next.copy.isDone()){ //Skip holds whose future was cancelled
+		    HotCopies h = hotCopies(uID);
+		    Outcome outcome;
+		    locks.lockMember(next.memberID);
+		    try{
+			outcome = h != null ? lendHot(next.memberID, uID, null, h) : lend(next.memberID, uID, null);
+		    }finally{
+			locks.unlockMember(next.memberID);
+		    }
+		    if(outcome == Outcome.UNAVAILABLE)
+			return served;
+		    if(outcome.isSuccess())
+			lent = catalogue.get(uID);
+		}
+		q.poll();
+		if(q.isEmpty())
+		    holds.remove(uID);
+	    }finally{
+		locks.unlockItem(uID);
+	    }
+	    if(served == null)
+		served = new ArrayList<>();
+	    Hold done = next;
+	    Item copy = lent;
+	    if(copy != null)
+		served.add(() -> {
+			if(!done.copy.complete(copy)) //Cancelled since it was served: nobody knows of the loan
+			    giveBack(done.memberID, uID);
+		    });
+	    else
+		served.add(() -> done.copy.completeExceptionally(new CheckOutException(done.memberID + " is not a member")));
+	}
+    }
+
+    /**
+     *Returns a copy lent to a member whose hold was cancelled after the copy was lent to them but before they were told, and serves the next hold with it.
+     */
+    private void giveBack(int memberID, int uID){
+	ArrayList<Runnable> served = null;
+	locks.readLock();
+	try{
+	    HotCopies h = hotCopies(uID);
+	    Outcome outcome;
+	    if(h != null){
+		outcome = returnHot(memberID, uID, null, h);
+	    }else{
+		locks.lockLoan(uID, memberID);
+		try{
+		    outcome = returnCopy(memberID, uID, null);
+		}finally{
+		    locks.unlockLoan(uID, memberID);
+		}
+	    }
+	    if(outcome.isSuccess() && holds.containsKey(uID))
+		served = serveHolds(uID, null);
+	}finally{
+	    locks.readUnlock();
+	    notifyHolds(served);
+	}
+    }
+
+    private static void notifyHolds(ArrayList<Runnable> served){
+	if(served != null){
+	    for(Runnable r : served)
+		r.run();
+	}
+    }
+
+    /**
+     *A group of check outs, returns and transfers which take effect together or not at all. Obtained inside transact.
+     *<p>
+     *Each item and member is locked (by its stripe) the first time the transaction reads it and stays locked until the transaction ends (two-phase locking). Changes are made to a private copy of what was read, which is written to the Library, the journal (as one record) and the change feed only when the work completes.
+     *Stripes are only ever tried, never waited for, so transactions cannot deadlock: if one is taken the transaction is abandoned and run again after a short random backoff.
+     */
+    public final class Transaction{
+	private final HashMap<Integer, Item> items = new HashMap<>();
+	private final HashMap<Integer, Item> originals = new HashMap<>();
+	private final HashMap<Integer, Member> members = new HashMap<>();
+	private final ArrayList<ReentrantLock> held = new ArrayList<>();
+	private final ArrayList<LibraryEvent> failures = new ArrayList<>();
+	private int loans = 0;
+	private boolean[] checkOuts = new boolean[4];
+	private int[] memberIDs = new int[4];
+	private int[] uIDs = new int[4];
+	private Item[] after = new Item[4];
+	private boolean conflicted = false;
+	private boolean rolledBack = false;
+	private boolean committed = false;
+	private boolean ended = false;
+	//Heavily borrowed items: copies taken from their counters, copies to put back on commit, and every one touched
+	private final ArrayList<HotCopies> acquired = new ArrayList<>();
+	private final ArrayList<HotCopies> returned = new ArrayList<>();
+	private final HashMap<Integer, HotCopies> hotTouched = new HashMap<>();
+	private final ArrayList<Integer> returnedUIDs = new ArrayList<>();
+
+	private Transaction(){}
+
+	private void lock(ReentrantLock stripe){
+	    if(ended)
+		throw new IllegalStateException("The transaction has ended");
+	    if(stripe == null)
+		return;
+	    if(!stripe.tryLock()){
+		conflicted = true;
+		throw Conflict.INSTANCE;
+	    }
+	    held.add(stripe);
+	}
+
+	private Item item(int uID){
+	    if(items.containsKey(uID))
+		return items.get(uID);
+	    lock(locks.itemStripe(uID));
+	    Item i = catalogue.get(uID);
+	    items.put(uID, i);
+	    originals.put(uID, i);
+	    return i;
+	}
+
+	private Member member(int memberID){
+	    if(members.containsKey(memberID))
+		return members.get(memberID);
+	    lock(locks.memberStripe(memberID));
+	    Member m = memberList.get(memberID);
+	    members.put(memberID, m);
+	    return m;
+	}
+
+	private void log(boolean checkOut, int memberID, int uID, Item item){
+	    if(loans == uIDs.length){
+		checkOuts = Arrays.copyOf(checkOuts, loans * 2);
+		memberIDs = Arrays.copyOf(memberIDs, loans * 2);
+		uIDs = Arrays.copyOf(uIDs, loans * 2);
+		after = Arrays.copyOf(after, loans * 2);
+	    }
+	    if(!checkOut)
+		returnedUIDs.add(uID);
+	    checkOuts[loans] = checkOut;
+	    memberIDs[loans] = memberID;
+	    uIDs[loans] = uID;
+	    after[loans++] = item;
+	}
+
+	private Outcome fail(LibraryEvent.Type type, Outcome outcome, int memberID, int uID, Item item){
+	    failures.add(new LibraryEvent(type, outcome, memberID, uID, item != null ? item.getTitle() : null));
+	    return outcome;
+	}
+
+	/**
+	 *Gets an item as this transaction sees it.
+	 *@param uID unique ID associated with desired item.
+	 *@return the item, including changes made earlier in this transaction, or null if it is not in the Library.
+	 */
+	public Item getItem(int uID){
+	    return item(uID);
+	}
+
+	/**
+	 *Gets a member as this transaction sees it.
+	 *@param memberID ID of the desired member.
+	 *@return the member, including changes made earlier in this transaction, or null if it is not in the Library.
+	 */
+	public Member getMember(int memberID){
+	    return member(memberID);
+	}
+
+	/**
+	 *Checks out an Item as part of this transaction.
+	 *@param member Member who is receiving the copy.
+	 *@param item Item to be checked out.
+	 *@return SUCCESS if the item will be checked out; NOT_FOUND if the item or member is not in the Library; UNAVAILABLE if there are no copies left.
+	 *@throws InvalidPermissionsError if member has invalid permissions
+	 */
+	public Outcome checkOut(Member member, Item item) throws InvalidPermissionsError{
+	    isMember(member);
+	    int memberID = member.getMemberID(), uID = uidOf(item);
+	    Item foundItem = item(uID);
+	    Member foundMember = member(memberID);
+	    if(foundItem == null || foundMember == null)
+		return fail(LibraryEvent.Type.CHECK_OUT, Outcome.NOT_FOUND, memberID, uID, item);
+	    if(holds.containsKey(uID))
+		return fail(LibraryEvent.Type.CHECK_OUT, Outcome.UNAVAILABLE, memberID, uID, foundItem);
+	    HotCopies h = hotCopies(uID);
+	    if(h != null){
+		if(!returned.remove(h)){ //Reuse a copy returned earlier in this transaction
+		    if(!h.tryAcquire())
+			return fail(LibraryEvent.Type.CHECK_OUT, Outcome.UNAVAILABLE, memberID, uID, foundItem);
+		    acquired.add(h);
+		}
+		hotTouched.put(uID, h);
+		members.put(memberID, foundMember.checkOut(uID));
+		log(true, memberID, uID, foundItem);
+		return Outcome.SUCCESS;
+	    }
+	    Item newItem = foundItem.tryCheckOut();
+	    if(newItem == null)
+		return fail(LibraryEvent.Type.CHECK_OUT, Outcome.UNAVAILABLE, memberID, uID, foundItem);
+	    items.put(uID, newItem);
+	    members.put(memberID, foundMember.checkOut(uID));
+	    log(true, memberID, uID, newItem);
+	    return Outcome.SUCCESS;
+	}
+
+	/**
+	 *Returns an Item as part of this transaction.
+	 *@param member Member who is returning the copy.
+	 *@param item Item to be returned.
+	 *@return SUCCESS if the item will be returned; NOT_FOUND if the item or member is not in the Library; NOT_CHECKED_OUT if the member does not have the item; ALL_RETURNED if every copy is already in the Library.
+	 *@throws InvalidPermissionsError if member has invalid permissions
+	 */
+	public Outcome returnItem(Member member, Item item) throws InvalidPermissionsError{
+	    isMember(member);
+	    int memberID = member.getMemberID(), uID = uidOf(item);
+	    Item foundItem = item(uID);
+	    Member foundMember = member(memberID);
+	    if(foundItem == null || foundMember == null)
+		return fail(LibraryEvent.Type.RETURN, Outcome.NOT_FOUND, memberID, uID, item);
+	    HotCopies h = hotCopies(uID);
+	    if(h != null){
+		Member newMember = foundMember.tryReturnItem(uID);
+		if(newMember == null)
+		    return fail(LibraryEvent.Type.RETURN, Outcome.NOT_CHECKED_OUT, memberID, uID, foundItem);
+		returned.add(h);
+		hotTouched.put(uID, h);
+		members.put(memberID, newMember);
+		log(false, memberID, uID, foundItem);
+		return Outcome.SUCCESS;
+	    }
+	    Item newItem = foundItem.tryReturnItem();
+	    if(newItem == null)
+		return fail(LibraryEvent.Type.RETURN, Outcome.ALL_RETURNED, memberID, uID, foundItem);
+	    Member newMember = foundMember.tryReturnItem(uID);
+	    if(newMember == null)
+		return fail(LibraryEvent.Type.RETURN, Outcome.NOT_CHECKED_OUT, memberID, uID, foundItem);
+	    items.put(uID, newItem);
+	    members.put(memberID, newMember);
+	    log(false, memberID, uID, newItem);
+	    return Outcome.SUCCESS;
+	}
+
+	/**
+	 *Moves a loan from one member to another as part of this transaction: from returns the item and to checks it out, so no other member can take the copy in between. Like checkOut, it is refused while members are waiting for the item: the returned copy is theirs.
+	 *@param from Member who has the copy.
+	 *@param to Member who is receiving the copy.
+	 *@param item Item to be transferred.
+	 *@return SUCCESS if the loan will be transferred; NOT_FOUND if the item or either member is not in the Library; UNAVAILABLE if members are waiting for the item; ALL_RETURNED if every copy is already in the Library; NOT_CHECKED_OUT if from does not have the item.
+	 *@throws InvalidPermissionsError if either member has invalid permissions
+	 */
+	public Outcome transfer(Member from, Member to, Item item) throws InvalidPermissionsError{
+	    isMember(from);
+	    isMember(to);
+	    int fromID = from.getMemberID(), toID = to.getMemberID(), uID = uidOf(item);
+	    Item foundItem = item(uID);
+	    Member foundFrom = member(fromID);
+	    Member foundTo = member(toID);
+	    if(foundItem == null || foundFrom == null || foundTo == null)
+		return fail(LibraryEvent.Type.RETURN, Outcome.NOT_FOUND, fromID, uID, item);
+	    if(holds.containsKey(uID))
+		return fail(LibraryEvent.Type.CHECK_OUT, Outcome.UNAVAILABLE, toID, uID, foundItem);
+	    boolean counted = hotCopies(uID) != null; //The copy never goes back to the counter
+	    Item back = counted ? foundItem : foundItem.tryReturnItem();
+	    if(back == null)
+		return fail(LibraryEvent.Type.RETURN, Outcome.ALL_RETURNED, fromID, uID, foundItem);
+	    Member newFrom = foundFrom.tryReturnItem(uID);
+	    if(newFrom == null)
+		return fail(LibraryEvent.Type.RETURN, Outcome.NOT_CHECKED_OUT, fromID, uID, foundItem);
+	    members.put(fromID, newFrom);
+	    log(false, fromID, uID, back);
+	    Item reissued = counted ? back : back.tryCheckOut(); //Cannot fail: a copy was just returned
+	    items.put(uID, reissued);
+	    members.put(toID, member(toID).checkOut(uID));
+	    log(true, toID, uID, reissued);
+	    return Outcome.SUCCESS;
+	}
+
+	/**
+	 *Discards every change made by this transaction. Nothing is written when the work completes.
+	 */
+	public void rollback(){
+	    rolledBack = true;
+	}
+
+	/**
+	 *Writes the changes to the Library. The journal is written first, so if it fails nothing changes.
+	 */
+	private void commit(){
+	    if(rolledBack || loans == 0)
+		return;
+	    if(journal != null)
+		journal.appendLoans(loans, checkOuts, memberIDs, uIDs);
+	    for(Map.Entry<Integer, Item> e : items.entrySet()){
+		Item original = originals.get(e.getKey());
+		if(e.getValue() == original)
+		    continue;
+		catalogue.insert(e.getKey(), e.getValue());
+		availabilityChanged(e.getKey(), original, e.getValue());
+	    }
+	    for(Map.Entry<Integer, Member> e : members.entrySet())
+		memberList.insert(e.getKey(), e.getValue());
+	    long due = dueFromNow();
+	    for(int i = 0; i < loans; i++){
+		if(checkOuts[i])
+		    dueDates.lent(memberIDs[i], uIDs[i], due);
+		else
+		    dueDates.returned(memberIDs[i], uIDs[i]);
+	    }
+	    committed = true;
+	    for(HotCopies h : returned)
+		h.release();
+	    for(int i = 0; i < loans; i++){
+		ChangeEvent.Type type = checkOuts[i] ? ChangeEvent.Type.CHECK_OUT : ChangeEvent.Type.RETURN;
+		HotCopies h = hotTouched.get(uIDs[i]);
+		if(h != null)
+		    publishHot(type, uIDs[i], memberIDs[i], h); //after[i] does not have the counted copies
+		else
+		    changes.publish(type, uIDs[i], memberIDs[i], 0, after[i]);
+	    }
+	}
+
+	private void release(){
+	    ended = true;
+	    if(!committed){
+		for(HotCopies h : acquired)
+		    h.release();
+	    }
+	    for(int i = held.size() - 1; i >= 0; i--)
+		held.get(i).unlock();
+	    held.clear();
+	}
+    }
+
+    /**
+     *The work done in a transaction. It may be run more than once, so it should have no effects outside the transaction.
+     *@param <R> the result type.
+     */
+    @FunctionalInterface
+    public interface Work<R>{
+	R run(Transaction tx) throws InvalidPermissionsError;
+    }
+
+    /**
+     *Thrown inside a transaction when a stripe it needs is taken. Never seen by callers.
+     */
+    private static final class Conflict extends RuntimeException{
+	private static final long serialVersionUID = 64398177;
+	static final Conflict INSTANCE = new Conflict();
+	private Conflict(){
+	    super(null, null, false, false);
+	}
+    }
+
+    /**
+     *Runs work as one transaction: its check outs, returns and transfers all take effect, or (if it throws or calls rollback) none do. If another thread holds an item or member it needs, the work is abandoned and run again after a random backoff which doubles with each attempt, up to a millisecond; without contention it runs once and takes no lock it does not need.
+     *Failed operations inside the work are sent to the event sink once it completes.
+     *@param <R> the result type.
+     *@param staff Used to check correct permissions are sent to alter Library.
+     *@param work The work to be done.
+     *@return what work returned.
+     *@throws InvalidPermissionsError if staff or a member used by work has invalid permissions
+     */
+    public <R> R transact(Staff staff, Work<R> work) throws InvalidPermissionsError{
+	long backoff = 1000; //nanoseconds
+	while(true){
+	    Transaction tx = new Transaction();
+	    ArrayList<Runnable> served = null;
+	    locks.readLock();
+	    try{
+		isStaff(staff);
+		R r = work.run(tx);
+		if(!tx.conflicted){
+		    tx.commit();
+		    for(LibraryEvent e : tx.failures)
+			events.publish(e);
+		    return r;
+		}
+	    }catch(Conflict c){
+		//Retried below
+	    }finally{
+		tx.release();
+		try{
+		    if(tx.committed){
+			for(int uID : tx.returnedUIDs){
+			    if(holds.containsKey(uID))
+				served = serveHolds(uID, served);
+			}
+		    }
+		}finally{
+		    locks.readUnlock();
+		    notifyHolds(served);
+		}
+	    }
+	    LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(backoff));
+	    backoff = Math.min(backoff * 2, 1_000_000);
+	}
+    }
+
+    /*
+     * The methods below change the Library's contents once permissions have been checked. They keep the caches and
+     * the journal up to date, and are what journal replay calls. Each change is journaled before it is made, so if the
+     * journal has failed the change is refused and nothing in memory is missing from the log.
+     */
+
+    /**
+     *Gets the uID an item is stored under, which is its own if the Library holds it.
+     *@return the uID, or -1, which no item is stored under (see addItem), if the item is not in the Library; its uID may belong to a different item whose title's hash collides.
+     */
+    private int uidOf(Item item){
+	return keys.get(item.getKey(), -1);
+    }
+
+    private void putItem(Item item){
+	journalAdd(item);
+	catalogue.insert(item.getUID(), item);
+	itemAdded(item);
+    }
+
+    private void itemAdded(Item item){
+	keys.put(item.getKey(), item.getUID());
+	if(locks.isConcurrent() && item.getCopies() >= HOT_COPIES)
+	    hot.put(item.getUID(), new HotCopies(item.getAvailableCopies(), HotCopies.stripesFor(item.getCopies())));
+	listings.itemAdded(item);
+	columns.add(item);
+	totals.itemAdded(item);
+	changes.publish(ChangeEvent.Type.ADD_ITEM, item.getUID(), 0, 0, item);
+    }
+
+    /**
+     *Brings the caches and views of the catalogue up to date after an item's available copies change.
+     */
+    private void availabilityChanged(int uID, Item oldItem, Item newItem){
+	details.invalidate(uID);
+	listings.availabilityChanged(oldItem, newItem);
+	columns.availabilityChanged(newItem);
+	totals.availabilityChanged(oldItem, newItem);
+    }
+
+    private void putArtist(Artist artist){
+	journalAdd(artist);
+	artistList.insert(artist.getArtistID(), artist);
+	artistAdded(artist);
+    }
+
+    private void artistAdded(Artist artist){
+	changes.publish(ChangeEvent.Type.ADD_ARTIST, 0, 0, artist.getArtistID(), null);
+    }
+
+    private void putStaff(Staff staff){
+	if(journal != null) journal.appendAddStaff(staff);
+	staffList.insert(staff.getStaffID(), staff);
+    }
+
+    private void putMember(Member member){
+	journalAdd(member);
+	memberList.insert(member.getMemberID(), member);
+	memberAdded(member);
+    }
+
+    private void memberAdded(Member member){
+	changes.publish(ChangeEvent.Type.ADD_MEMBER, 0, member.getMemberID(), 0, null);
+    }
+
+    private void journalAdd(Item item){
+	if(journal != null) journal.appendAddItem(item);
+    }
+
+    private void journalAdd(Artist artist){
+	if(journal != null) journal.appendAddArtist(artist);
+    }
+
+    private void journalAdd(Member member){
+	if(journal != null) journal.appendAddMember(member);
+    }
+
+    /**
+     *Sorts a batch by key, drops repeated keys and inserts the rest in one pass (a finger search, over a skip list; see OrderedMap.insertSorted).
+     *@param journaled Called for every value just before it is inserted, in key order; if it throws, that value and the rest are not inserted.
+     *@param added Called for every value inserted, in key order, even if the batch stopped part way.
+     *@return the values not inserted, in key order.
+     */
+    private static <V> List<V> bulkPut(List<? extends V> values, ToIntFunction<V> id, OrderedMap<Integer, V> list, Consumer<V> journaled, Consumer<V> added){
+	@SuppressWarnings("unchecked")
+	V[] sorted = (V[]) values.toArray();
+	Comparator<V> byID = Comparator.comparingInt(id);
+	boolean inOrder = true;
+	for(int i = 1; i < sorted.length && inOrder; i++)
+	    inOrder = byID.compare(sorted[i - 1], sorted[i]) <= 0;
+	if(!inOrder)
+	    Arrays.parallelSort(sorted, byID);
+	ArrayList<V> unique = new ArrayList<>(sorted.length);
+	ArrayList<V> rejected = new ArrayList<>();
+	for(V v : sorted){
+	    if(!unique.isEmpty() && id.applyAsInt(unique.get(unique.size() - 1)) == id.applyAsInt(v))
+		rejected.add(v);
+	    else
+		unique.add(v);
+	}
+	Set<V> present = Collections.newSetFromMap(new IdentityHashMap<>());
+	ArrayList<V> inserted = new ArrayList<>(unique.size());
+	try{
+	    list.insertSorted(unique, id::applyAsInt, v -> {
+		    journaled.accept(v);
+		    inserted.add(v);
+		    return v;
+		}, present::add);
+	}finally{
+	    for(V v : inserted)
+		added.accept(v);
+	}
+	rejected.addAll(present);
+	rejected.sort(byID);
+	return rejected;
+    }
+
+    /**
+     *Copies the part of this Library holding the uIDs low to high (inclusive) into an empty Library: every staff member, artist and member, the items in range, and their loans, due dates and holds. Each member keeps only the loans of items in range. Used to split a shard (see ShardedLibrary.addShard); neither Library may be in use meanwhile, and neither may be concurrent.
+     *@param into a Library with no journal which nothing but its admin has been added to.
+     */
+    void copyRange(Library into, int low, int high){
+	for(Staff s : staffList.values())
+	    into.putStaff(s);
+	for(Artist a : artistList.values())
+	    into.putArtist(a);
+	for(Member m : memberList.values()){
+	    for(int uID : m.getCheckedOut()){
+		if(uID != -1 && (uID < low || uID > high))
+		    m = m.tryReturnItem(uID);
+	    }
+	    into.putMember(m);
+	}
+	for(Item item : catalogue.values()){
+	    if(item.getUID() >= low && item.getUID() <= high)
+		into.putItem(item);
+	}
+	dueDates.copyRange(into.dueDates, low, high);
+	holds.forEach((uID, waiting) -> {
+		if(uID >= low && uID <= high)
+		    into.holds.put(uID, waiting);
+	    });
+	into.loanMillis = loanMillis;
+	into.events = events;
+    }
+
+    /**
+     *Gets the number of items in the catalogue.
+     */
+    int itemCount(){
+	return catalogue.size();
+    }
+
+    /**
+     *Checks out a copy of an item to a member, unless members are waiting for it.
+     *@param requested The item asked for; only used to describe a failure. May be null.
+     */
+    private Outcome checkOut(int memberID, int uID, Item requested){
+	if(holds.containsKey(uID))
+	    return failed(LibraryEvent.Type.CHECK_OUT, Outcome.UNAVAILABLE, memberID, uID, requested);
+	return lend(memberID, uID, requested);
+    }
+
+    /**
+     *Checks out a copy of an item to a member.
+     *@param requested The item asked for; only used to describe a failure. May be null.
+     */
+    private Outcome lend(int memberID, int uID, Item requested){
+	Item foundItem = catalogue.get(uID);
+	Member foundMember = memberList.get(memberID);
+	if(foundItem == null || foundMember == null)
+	    return failed(LibraryEvent.Type.CHECK_OUT, Outcome.NOT_FOUND, memberID, uID, requested);
+	Item newItem = foundItem.tryCheckOut();
+	if(newItem == null)
+	    return failed(LibraryEvent.Type.CHECK_OUT, Outcome.UNAVAILABLE, memberID, uID, foundItem);
+	Member newMember = foundMember.checkOut(uID);
+	if(journal != null) journal.appendCheckOut(memberID, uID);
+	memberList.insert(memberID, newMember);
+	catalogue.insert(uID, newItem);
+	availabilityChanged(uID, foundItem, newItem);
+	dueDates.lent(memberID, uID, dueFromNow());
+	changes.publish(ChangeEvent.Type.CHECK_OUT, uID, memberID, 0, newItem);
+	return Outcome.SUCCESS;
+    }
+
+    /**
+     *Returns a member's copy of an item.
+     *@param requested The item asked for; only used to describe a failure. May be null.
+     */
+    private Outcome returnCopy(int memberID, int uID, Item requested){
+	Item foundItem = catalogue.get(uID);
+	Member foundMember = memberList.get(memberID);
+	if(foundItem == null || foundMember == null)
+	    return failed(LibraryEvent.Type.RETURN, Outcome.NOT_FOUND, memberID, uID, requested);
+	Item newItem = foundItem.tryReturnItem();
+	if(newItem == null)
+	    return failed(LibraryEvent.Type.RETURN, Outcome.ALL_RETURNED, memberID, uID, foundItem);
+	Member newMember = foundMember.tryReturnItem(uID);
+	if(newMember == null)
+	    return failed(LibraryEvent.Type.RETURN, Outcome.NOT_CHECKED_OUT, memberID, uID, foundItem);
+	if(journal != null) journal.appendReturn(memberID, uID);
+	catalogue.insert(uID, newItem);
+	memberList.insert(memberID, newMember);
+	availabilityChanged(uID, foundItem, newItem);
+	dueDates.returned(memberID, uID);
+	changes.publish(ChangeEvent.Type.RETURN, uID, memberID, 0, newItem);
+	return Outcome.SUCCESS;
+    }
+
+    private long dueFromNow(){
+	return System.currentTimeMillis() + loanMillis;
+    }
+
+    /**
+     *Gets the copy counter of a heavily borrowed item.
+     *@return the counter, or null if the item's copies are counted by the Item in the catalogue.
+     */
+    private HotCopies hotCopies(int uID){
+	return locks.isConcurrent() ? hot.get(uID) : null;
+    }
+
+    /**
+     *Checks out a copy of a heavily borrowed item, unless members are waiting for it.
+     */
+    private Outcome checkOutHot(int memberID, int uID, Item requested, HotCopies h){
+	if(holds.containsKey(uID))
+	    return failed(LibraryEvent.Type.CHECK_OUT, Outcome.UNAVAILABLE, memberID, uID, requested);
+	return lendHot(memberID, uID, requested, h);
+    }
+
+    /**
+     *Checks out a copy of a heavily borrowed item. Only the member's stripe is locked: the copy is taken from the item's counter, and the catalogue is brought up to date afterwards by publishHot.
+     */
+    private Outcome lendHot(int memberID, int uID, Item requested, HotCopies h){
+	if(!h.tryAcquire())
+	    return failed(LibraryEvent.Type.CHECK_OUT, Outcome.UNAVAILABLE, memberID, uID, requested);
+	ReentrantLock stripe = locks.memberStripe(memberID);
+	stripe.lock();
+	try{
+	    Member foundMember = memberList.get(memberID);
+	    if(foundMember == null){
+		h.release();
+		return failed(LibraryEvent.Type.CHECK_OUT, Outcome.NOT_FOUND, memberID, uID, requested);
+	    }
+	    try{
+		if(journal != null) journal.appendCheckOut(memberID, uID);
+	    }catch(RuntimeException e){
+		h.release(); //Not lent after all
+		throw e;
+	    }
+	    memberList.insert(memberID, foundMember.checkOut(uID));
+	    dueDates.lent(memberID, uID, dueFromNow());
+	    publishHot(ChangeEvent.Type.CHECK_OUT, uID, memberID, h);
+	}finally{
+	    stripe.unlock();
+	}
+	return Outcome.SUCCESS;
+    }
+
+    /**
+     *Returns a copy of a heavily borrowed item (see checkOutHot). The copy is put back only after the return is journaled, so a check out which takes it is always journaled after it.
+     */
+    private Outcome returnHot(int memberID, int uID, Item requested, HotCopies h){
+	ReentrantLock stripe = locks.memberStripe(memberID);
+	stripe.lock();
+	try{
+	    Member foundMember = memberList.get(memberID);
+	    if(foundMember == null)
+		return failed(LibraryEvent.Type.RETURN, Outcome.NOT_FOUND, memberID, uID, requested);
+	    Member newMember = foundMember.tryReturnItem(uID);
+	    if(newMember == null)
+		return failed(LibraryEvent.Type.RETURN, Outcome.NOT_CHECKED_OUT, memberID, uID, requested);
+	    if(journal != null) journal.appendReturn(memberID, uID);
+	    memberList.insert(memberID, newMember);
+	    dueDates.returned(memberID, uID);
+	    h.release();
+	    publishHot(ChangeEvent.Type.RETURN, uID, memberID, h);
+	}finally{
+	    stripe.unlock();
+	}
+	return Outcome.SUCCESS;
+    }
+
+    /**
+     *Marks a heavily borrowed item's count as changed, writes the count back to the Item in the catalogue unless a thread which saw the change already has, and publishes the change with the Item as it then is.
+     *The write and the publish happen together under the item's republish lock, so the item's changes reach the feed in the order their counts were written, and each carries a count which includes it: a consumer which keeps the Item of the latest change is never left with an older count.
+     */
+    private void publishHot(ChangeEvent.Type type, int uID, int memberID, HotCopies h){
+	h.markDirty();
+	ReentrantLock lock = h.republishLock();
+	lock.lock();
+	try{
+	    Item now = catalogue.get(uID);
+	    if(h.claimDirty()){
+		Item old = now;
+		now = old.withAvailableCopies(Math.min(h.available(), old.getCopies())); //The sum can overcount while a copy moves between cells
+		if(now != old){
+		    catalogue.insert(uID, now);
+		    availabilityChanged(uID, old, now);
+		}
+	    }
+	    changes.publish(type, uID, memberID, 0, now);
+	}finally{
+	    lock.unlock();
+	}
+    }
+
+    /**
+     *Reports a failed operation to the event sink.
+     *@return the given outcome.
+     */
+    private Outcome failed(LibraryEvent.Type type, Outcome outcome, int memberID, int uID, Item item){
+	events.publish(new LibraryEvent(type, outcome, memberID, uID, item != null ? item.getTitle() : null));
+	return outcome;
+    }
+
+    /**
+     *Sets where failed check outs and returns are reported. By default they are discarded; wrap slow sinks (such as the console) in an AsyncEventSink.
+     *@param staff Used to check correct permissions are sent to alter Library.
+     *@param sink The new event sink. If null, events are discarded.
+     *@throws InvalidPermissionsError if staff has invalid permissions
+     */
+    public void setEventSink(Staff staff, EventSink sink) throws InvalidPermissionsError{
+	locks.readLock();
+	try{
+	    isStaff(staff);
+	    events = sink != null ? sink : EventSink.DISCARD;
+	}finally{
+	    locks.readUnlock();
+	}
+    }
+
+    /**
+     *Sets how long items are lent for. Loans already made keep their due dates. The default is 21 days.
+     *@param staff Used to check correct permissions are sent to alter Library.
+     *@param period The new loan period.
+     *@throws InvalidPermissionsError if staff has invalid permissions
+     */
+    public void setLoanPeriod(Staff staff, Duration period) throws InvalidPermissionsError{
+	locks.readLock();
+	try{
+	    isStaff(staff);
+	    loanMillis = period.toMillis();
+	}finally{
+	    locks.readUnlock();
+	}
+    }
+
+    /**
+     *Gets every loan which is overdue. Loans are indexed by due date, so this takes time proportional to the number of overdue loans, not to the number of members.
+     *@param staff Used to check correct permissions are sent to receive loan information.
+     *@param asOf The time to check against; usually Instant.now().
+     *@return the loans due before asOf, in order of due date.
+     *@throws InvalidPermissionsError if staff has invalid permissions
+     */
+    public List<Loan> getOverdueLoans(Staff staff, Instant asOf) throws InvalidPermissionsError{
+	return read(() -> {
+	    isStaff(staff);
+	    return dueDates.overdue(asOf.toEpochMilli());
+	});
+    }
+
+    /**
+     *Gets the loans which have become overdue since the last sweep, such as for a nightly run of overdue notices. Each sweep starts where the last one ended, so a loan is reported once and a sweep only costs as much as the loans it reports.
+     *@param staff Used to check correct permissions are sent to receive loan information.
+     *@param asOf The time to check against; usually Instant.now().
+     *@return the loans due before asOf which no earlier sweep reported, in order of due date.
+     *@throws InvalidPermissionsError if staff has invalid permissions
+     */
+    public List<Loan> sweepOverdueLoans(Staff staff, Instant asOf) throws InvalidPermissionsError{
+	locks.readLock(); //Not read(...): a sweep must not be run twice
+	try{
+	    isStaff(staff);
+	    return dueDates.sweep(asOf.toEpochMilli());
+	}finally{
+	    locks.readUnlock();
+	}
+    }
+
+    /**
+     *Gets a member's loans with their due dates.
+     *@param staff Used to check correct permissions are sent to receive loan information.
+     *@param member Member whose loans are wanted.
+     *@return the member's loans, in order of due date.
+     *@throws InvalidPermissionsError if staff has invalid permissions or member is not a member
+     */
+    public List<Loan> getLoans(Staff staff, Member member) throws InvalidPermissionsError{
+	return read(() -> {
+	    isStaff(staff);
+	    isMember(member);
+	    int memberID = member.getMemberID();
+	    int[] checkedOut = memberList.get(memberID).getCheckedOut();
+	    Arrays.sort(checkedOut);
+	    ArrayList<Loan> loans = new ArrayList<>();
+	    for(int i = 0; i < checkedOut.length; i++){
+		if(checkedOut[i] != -1 && (i == 0 || checkedOut[i] != checkedOut[i - 1]))
+		    loans.addAll(dueDates.loans(memberID, checkedOut[i]));
+	    }
+	    loans.sort(null);
+	    return loans;
+	});
+    }
+
+    /**
+     *Gets the feed of changes made to this Library: items, artists and members added, and items checked out and returned. Consumers can take a copy with getCatalogue, note getChangeFeed(...).nextSequence() first, and then apply only the changes from that sequence number onward.
+     *@param staff Used to check correct permissions are sent to follow Library.
+     *@return the change feed.
+     *@throws InvalidPermissionsError if staff has invalid permissions
+     */
+    public ChangeFeed getChangeFeed(Staff staff) throws InvalidPermissionsError{
+	locks.readLock();
+	try{
+	    isStaff(staff);
+	    return changes;
+	}finally{
+	    locks.readUnlock();
+	}
+    }
+
+    /**
+     *Returns the current Library catalogue.
+     *@param person Used to check correct permissions are sent to receive catalogue information.
+     *@return a copy of the internal catalogue.
+     *@throws InvalidPermissionsError if person has invalid permissions
+     */    
+    public OrderedMap<Integer, Item> getCatalogue(Person person) throws InvalidPermissionsError{
+	return read(() -> {
+	    validatePerson(person);
+	    return catalogue.copy();
+	});
+    }
+
+    /**
+     *Returns the current Library catalogue as a read-only index, which is searched several times faster than a SkipList or an OrderedList. Suited to callers which only look items up in the copy.
+     *@param person Used to check correct permissions are sent to receive catalogue information.
+     *@return a frozen copy of the internal catalogue.
+     *@throws InvalidPermissionsError if person has invalid permissions
+     */
+    public FrozenIndex<Item> getFrozenCatalogue(Person person) throws InvalidPermissionsError{
+	return read(() -> {
+	    validatePerson(person);
+	    return catalogue instanceof SkipList<Integer, Item> sl ? SkipList.freeze(sl) : FrozenIndex.of(catalogue);
+	});
+    }
+
+    /**
+     *Returns a columnar copy of the Library catalogue, for totals and ratios over many items (see CatalogueColumns). The Library keeps its columns up to date as it changes, so taking a copy costs one array copy per column rather than a walk over the catalogue.
+     *@param person Used to check correct permissions are sent to receive catalogue information.
+     *@return a copy of the catalogue's columns.
+     *@throws InvalidPermissionsError if person has invalid permissions
+     */
+    public CatalogueColumns getColumns(Person person) throws InvalidPermissionsError{
+	return read(() -> {
+	    validatePerson(person);
+	    return columns.snapshot();
+	});
+    }
+
+    /**
+     *Gets the number of items, copies and available copies of a genre. The totals are kept up to date as items are added, checked out and returned, so this does not scan the catalogue.
+     *@param person Used to check correct permissions are sent to receive catalogue information.
+     *@param genre The genre.
+     *@return the genre's totals.
+     *@throws InvalidPermissionsError if person has invalid permissions
+     */
+    public Totals getGenreTotals(Person person, Item.Genre genre) throws InvalidPermissionsError{
+	return read(() -> {
+	    validatePerson(person);
+	    return totals.genre(genre);
+	});
+    }
+
+    /**
+     *Gets the number of items, copies and available copies of every genre (see getGenreTotals).
+     *@param person Used to check correct permissions are sent to receive catalogue information.
+     *@return the totals of each genre.
+     *@throws InvalidPermissionsError if person has invalid permissions
+     */
+    public EnumMap<Item.Genre, Totals> getGenreTotals(Person person) throws InvalidPermissionsError{
+	return read(() -> {
+	    validatePerson(person);
+	    EnumMap<Item.Genre, Totals> all = new EnumMap<>(Item.Genre.class);
+	    for(Item.Genre g : Item.Genre.values())
+		all.put(g, totals.genre(g));
+	    return all;
+	});
+    }
+
+    /**
+     *Gets the number of items, copies and available copies of an artist's works. The totals are kept up to date as items are added, checked out and returned, so this does not scan the catalogue.
+     *@param person Used to check correct permissions are sent to receive catalogue information.
+     *@param artist The artist.
+     *@return the artist's totals; all zero if the artist has no items.
+     *@throws InvalidPermissionsError if person has invalid permissions
+     */
+    public Totals getArtistTotals(Person person, Artist artist) throws InvalidPermissionsError{
+	return read(() -> {
+	    validatePerson(person);
+	    return totals.artist(artist.getArtistID());
+	});
+    }
+
+    /**
+     *Returns all artists in the current Library catalogue.
+     *@param person Used to check correct permissions are sent to receive artist information.
+     *@return a copy of the internal artist list.
+     *@throws InvalidPermissionsError if person has invalid permissions
+     */    
+    public OrderedMap<Integer, Artist> getArtists(Person person) throws InvalidPermissionsError{
+	return read(() -> {
+	    validatePerson(person);
+	    return artistList.copy();
+	});
+    }
+
+    /**
+     *Returns all staff in the Library.
+     *@param staff Used to check correct permissions are sent to receive staff information.
+     *@return a copy of the internal staff list.
+     *@throws InvalidPermissionsError if person has invalid permissions
+     */    
+    public OrderedMap<Integer, Staff> getStaff(Staff staff) throws InvalidPermissionsError{
+	return read(() -> {
+	    isStaff(staff);
+	    return staffList.copy();
+	});
+    }
+
+    /**
+     *Returns all members in the Library.
+     *@param staff Used to check correct permissions are sent to receive member information.
+     *@return a copy of the internal member list.
+     *@throws InvalidPermissionsError if person has invalid permissions
+     */    
+    public OrderedMap<Integer, Member> getMembers(Staff staff) throws InvalidPermissionsError{
+	return read(() -> {
+	    isStaff(staff);
+	    return memberList.copy();
+	});
+    }
+
+    /**
+     *Checks that person is a valid Member or Staff of the Library.
+     *@throws InvalidPermissionsError if person has invalid permissions
+     */
+    private void validatePerson(Person person) throws InvalidPermissionsError{
+	switch (person){
+	    case Member m -> isMember(m);
+	    case Staff s -> isStaff(s);
+	    default -> throw new InvalidPermissionsError("null value");	    
+	}
+    }
+
+    /**
+     *Gets a lazy stream over the catalogue in uID order.
+     */
+    private Stream<Item> catalogueStream(){
+	return StreamSupport.stream(catalogue.values().spliterator(), false);
+    }
+
+    /**
+     *Collects a stream while the structure lock is held if the Library is shared between threads, since the lists may change once it is released.
+     */
+    private Stream<Item> settled(Stream<Item> items){
+	return locks.isConcurrent() ? items.toList().stream() : items;
+    }
+
+    /**
+     *A listing read from the query cache, or built along with the version of the index it was built from.
+     */
+    private static final class Listing{
+	final String text;
+	final long version;
+	final boolean built;
+
+	Listing(String text, long version, boolean built){
+	    this.text = text;
+	    this.version = version;
+	    this.built = built;
+	}
+    }
+
+    /**
+     *Gets a listing from the query cache, building and caching it if it is missing or stale. The cache is checked first and the index version read before the catalogue is scanned, in the same read, so nothing is scanned on a hit and a change made during the scan leaves the result stale rather than caching it as current (see QueryCache.version). The result is cached, and the hit or miss counted, only once the read has validated; the read itself writes nothing shared.
+     *@param items Streams the listing's items; run inside the read.
+     *@throws InvalidPermissionsError if person has invalid permissions
+     */
+    private String cachedListing(Person person, long key, String header, Supplier<Stream<Item>> items) throws InvalidPermissionsError{
+	Listing l = read(() -> {
+		validatePerson(person);
+		String cached = listings.get(key);
+		if(cached != null)
+		    return new Listing(cached, 0, false);
+		long version = listings.version(key);
+		return new Listing(ItemReport.toString(header, items.get()), version, true);
+	    });
+	if(l.built)
+	    listings.put(key, l.version, l.text);
+	else
+	    listings.hit(key);
+	return l.text;
+    }
+
+    /**
+     *Returns all items associated with the given Artist in the Library.
+     *@param person Used to check correct permissions are sent to receive staff information.
+     *@param artist Artist to match with items.
+     *@return String listing all items associated with given artist.
+     *@throws InvalidPermissionsError if person has invalid permissions
+     */    
+    public String allArtistItems(Person person, Artist artist) throws InvalidPermissionsError{
+	int artistID = artist.getArtistID();
+	return cachedListing(person, QueryCache.artistKey(artistID), "Results for " + artist + ": ",
+			     () -> catalogueStream().filter(i -> i.getArtistID() == artistID));
+    }
+
+    /**
+     *Streams all items associated with the given Artist in the Library. The catalogue is read lazily, so the caller may stop early or page with skip/limit (see ItemReport).
+     *@param person Used to check correct permissions are sent to receive item information.
+     *@param artist Artist to match with items.
+     *@return Stream of all items associated with given artist, in uID order.
+     *@throws InvalidPermissionsError if person has invalid permissions
+     */
+    public Stream<Item> streamArtistItems(Person person, Artist artist) throws InvalidPermissionsError{
+	return read(() -> {
+	    validatePerson(person);
+	    int artistID = artist.getArtistID();
+	    return settled(catalogueStream().filter(i -> i.getArtistID() == artistID));
+	});
+    }
+
+    /**
+     *Returns all items associated with the given Genre in the Library.
+     *@param person Used to check correct permissions are sent to receive staff information.
+     *@param genre Genre to match with items.
+     *@return String listing all items associated with given artist.
+     *@throws InvalidPermissionsError if person has invalid permissions
+     */
+    public String allGenreItems(Person person, Item.Genre genre) throws InvalidPermissionsError{
+	return cachedListing(person, QueryCache.genreKey(genre), "Results for " + genre + ": ",
+			     () -> catalogueStream().filter(i -> i.getGenre() == genre));
+    }
+
+    /**
+     *Streams all items associated with the given Genre in the Library. The catalogue is read lazily.
+     *@param person Used to check correct permissions are sent to receive item information.
+     *@param genre Genre to match with items.
+     *@return Stream of all items associated with given genre, in uID order.
+     *@throws InvalidPermissionsError if person has invalid permissions
+     */
+    public Stream<Item> streamGenreItems(Person person, Item.Genre genre) throws InvalidPermissionsError{
+	return read(() -> {
+	    validatePerson(person);
+	    return settled(catalogueStream().filter(i -> i.getGenre() == genre));
+	});
+    }
+
+    /**
+     *Returns all items checked out by Member in the Library.
+     *@param staff Used to check correct permissions are sent to receive Member information.
+     *@param member Member to find checked out items.
+     *@return String listing all items checked out by member.
+     *@throws InvalidPermissionsError if person has invalid permissions
+     */        
+    public String memberCheckedOutItems(Staff staff, Member member) throws InvalidPermissionsError{
+	return ItemReport.toString("Results for " + member + " items checked out: ", streamMemberCheckedOutItems(staff, member));
+    }
+
+    /**
+     *Streams all items checked out by Member in the Library.
+     *@param staff Used to check correct permissions are sent to receive Member information.
+     *@param member Member to find checked out items.
+     *@return Stream of all items checked out by member.
+     *@throws InvalidPermissionsError if person has invalid permissions
+     */
+    public Stream<Item> streamMemberCheckedOutItems(Staff staff, Member member) throws InvalidPermissionsError{
+	return read(() -> {
+	    isStaff(staff);
+	    int[] checkedOutUIDs = memberList.get(member.getMemberID()).getCheckedOut();
+	    return settled(Arrays.stream(checkedOutUIDs)
+			   .filter(uid -> uid != -1)
+			   .mapToObj(catalogue::get)
+			   .filter(Objects::nonNull));
+	});
+    }
+
+    /**
+     *Returns all available items in the Library.
+     *@param person Used to check correct permissions are sent to receive available item information.
+     *@return String listing all available items.
+     *@throws InvalidPermissionsError if person has invalid permissions
+     */        
+    public String allAvailableItems(Person person) throws InvalidPermissionsError{
+	return cachedListing(person, QueryCache.availableKey(), "Available Titles: ",
+			     () -> catalogueStream().filter(Item::isAvailable));
+    }
+
+    /**
+     *Streams all available items in the Library. The catalogue is read lazily.
+     *@param person Used to check correct permissions are sent to receive available item information.
+     *@return Stream of all available items, in uID order.
+     *@throws InvalidPermissionsError if person has invalid permissions
+     */
+    public Stream<Item> streamAvailableItems(Person person) throws InvalidPermissionsError{
+	return read(() -> {
+	    validatePerson(person);
+	    return settled(catalogueStream().filter(Item::isAvailable));
+	});
+    }
+
+    /**
+     *Returns all information about the given item.
+     *@param person Used to check correct permissions are sent to receive available item information.
+     *@param uID unique ID associated with desired item.
+     *@return String listing all information present for the given item.
+     *@throws InvalidPermissionsError if person has invalid permissions
+     */        
+    public String getDetailedItemInfo(Person person, int uID) throws InvalidPermissionsError{
+	return read(() -> {
+	    validatePerson(person);
+	    return details(uID);
+	}).cache(details);
+    }
+
+    /**
+     *Returns all information about the item with the given key, such as the explicit ID it was built with.
+     *@param person Used to check correct permissions are sent to receive available item information.
+     *@param key key associated with desired item (see Item.getKey).
+     *@return String listing all information present for the given item.
+     *@throws InvalidPermissionsError if person has invalid permissions
+     */
+    public String getDetailedItemInfo(Person person, long key) throws InvalidPermissionsError{
+	return read(() -> {
+	    validatePerson(person);
+	    return details(keys.get(key, -1));
+	}).cache(details);
+    }
+
+    /**
+     *An item's details, read from the detail cache or rendered along with the Item and Artist they were rendered from.
+     */
+    private static final class Detail{
+	final int uID;
+	final Item item;
+	final Artist artist;
+	final String text;
+	final boolean built;
+
+	Detail(int uID, Item item, Artist artist, String text, boolean built){
+	    this.uID = uID;
+	    this.item = item;
+	    this.artist = artist;
+	    this.text = text;
+	    this.built = built;
+	}
+
+	/**
+	 *Caches the details if they were rendered; call once the read has validated.
+	 */
+	String cache(DetailCache cache){
+	    if(built)
+		cache.put(uID, item, artist, text);
+	    return text;
+	}
+    }
+
+    /**
+     *Renders an item's details, or looks them up in the cache; the caller is in a read. Nothing is written to the cache here, since an optimistic read may be running over a change and be retried (see Detail.cache).
+     */
+    private Detail details(int uID){
+	Item i = catalogue.get(uID);
+	if(i == null)
+	    return new Detail(uID, null, null, DetailRenderer.render(uID, null, null), false);
+	Artist a = artistList.get(i.getArtistID());
+	String s = details.get(uID, i, a);
+	if(s != null)
+	    return new Detail(uID, i, a, s, false);
+	return new Detail(uID, i, a, DetailRenderer.render(uID, i, a), true);
+    }
+}
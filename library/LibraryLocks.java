@@ -0,0 +1,145 @@
+package library;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+/**
+ * The locks which make a Library safe to share between threads.
+ * <p>
+ * The structure lock is held shared by check outs and returns, which replace values in the lists, and exclusively by anything which adds or removes nodes. Queries do not take it at all: they read under an optimistic stamp and only fall back to holding it shared if a node was added while they ran (see Library.read). A reader which succeeds optimistically writes nothing shared. Check outs and returns also hold the stripe of the item's uID and the stripe of the member's memberID, so changes to different items and members go ahead in parallel while two changes to the same one take turns.
+ * Item stripes are always locked before member stripes, and two stripes of the same kind in index order, so lock order is fixed.
+ * <p>
+ * Only java.util.concurrent locks are used, so a virtual thread waiting here is unmounted rather than pinning its carrier. The structure lock is a StampedLock, which is not reentrant: code which already holds it must not take it again.
+ * NONE does nothing at all, for a Library used by one thread; its optimistic stamps always validate.
+ */
+class LibraryLocks{
+    static final LibraryLocks NONE = new LibraryLocks();
+
+    private final StampedLock structure;
+    private final Lock shared;
+    private final Lock exclusive;
+    private final ReentrantLock[] itemStripes;
+    private final ReentrantLock[] memberStripes;
+    private final int mask;
+
+    private LibraryLocks(){
+	structure = null;
+	shared = null;
+	exclusive = null;
+	itemStripes = null;
+	memberStripes = null;
+	mask = 0;
+    }
+
+    /**
+     * Constructs LibraryLocks.
+     * @param stripes The number of stripes for items and for members; rounded up to a power of two.
+     */
+    LibraryLocks(int stripes){
+	int n = Integer.highestOneBit(Math.max(2, stripes) - 1) << 1;
+	structure = new StampedLock();
+	shared = structure.asReadLock();
+	exclusive = structure.asWriteLock();
+	itemStripes = new ReentrantLock[n];
+	memberStripes = new ReentrantLock[n];
+	for(int i = 0; i < n; i++){
+	    itemStripes[i] = new ReentrantLock();
+	    memberStripes[i] = new ReentrantLock();
+	}
+	mask = n - 1;
+    }
+
+    /**
+     * Gives a stripe count suited to this machine.
+     */
+    static int defaultStripes(){
+	return Math.max(64, Runtime.getRuntime().availableProcessors() * 16);
+    }
+
+    boolean isConcurrent(){
+	return structure != null;
+    }
+
+    private int stripe(int key){
+	int h = key * 0x9E3779B9;
+	return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * Starts an optimistic read.
+     * @return a stamp to validate once the read is done, or 0 if a writer holds the structure lock.
+     */
+    long tryOptimisticRead(){
+	return structure != null ? structure.tryOptimisticRead() : 1;
+    }
+
+    /**
+     * Checks that no node was added since the stamp was taken, so what was read is consistent.
+     */
+    boolean validate(long stamp){
+	return structure == null || structure.validate(stamp);
+    }
+
+    void readLock(){
+	if(structure != null) shared.lock();
+    }
+
+    void readUnlock(){
+	if(structure != null) shared.unlock();
+    }
+
+    void writeLock(){
+	if(structure != null) exclusive.lock();
+    }
+
+    void writeUnlock(){
+	if(structure != null) exclusive.unlock();
+    }
+
+    /**
+     * Locks the stripes of an item and a member. The structure lock must already be held.
+     */
+    void lockLoan(int uID, int memberID){
+	lockItem(uID);
+	lockMember(memberID);
+    }
+
+    void unlockLoan(int uID, int memberID){
+	unlockMember(memberID);
+	unlockItem(uID);
+    }
+
+    /**
+     * Locks the stripe of an item. A member's stripe may be locked after it, never before.
+     */
+    void lockItem(int uID){
+	if(structure != null) itemStripes[stripe(uID)].lock();
+    }
+
+    void unlockItem(int uID){
+	if(structure != null) itemStripes[stripe(uID)].unlock();
+    }
+
+    void lockMember(int memberID){
+	if(structure != null) memberStripes[stripe(memberID)].lock();
+    }
+
+    void unlockMember(int memberID){
+	if(structure != null) memberStripes[stripe(memberID)].unlock();
+    }
+
+    /**
+     * Gets the stripe lock of an item, for callers which take several stripes in no fixed order and so must only ever tryLock them.
+     * @return the lock, or null for NONE.
+     */
+    ReentrantLock itemStripe(int uID){
+	return structure != null ? itemStripes[stripe(uID)] : null;
+    }
+
+    /**
+     * Gets the stripe lock of a member (see itemStripe).
+     * @return the lock, or null for NONE.
+     */
+    ReentrantLock memberStripe(int memberID){
+	return structure != null ? memberStripes[stripe(memberID)] : null;
+    }
+}
@@ -0,0 +1,86 @@
+package library;
+import java.time.Instant;
+/**
+ * A copy of an item checked out to a member, and when it is due back. Loans are ordered by due date, then by the order they were made in.
+ */
+public final class Loan implements Comparable<Loan>{
+    private final int memberID;
+    private final int uID;
+    private final long due;
+    private final long sequence;
+    //Set by the sweep which reports the loan, so no other sweep reports it again
+    private volatile boolean swept = false;
+
+    /**
+     * Constructs a Loan.
+     * @param memberID The member who has the copy.
+     * @param uID The item lent.
+     * @param due When the copy is due back, in milliseconds since the epoch.
+     * @param sequence Tells apart loans due at the same time.
+     */
+    Loan(int memberID, int uID, long due, long sequence){
+	this.memberID = memberID;
+	this.uID = uID;
+	this.due = due;
+	this.sequence = sequence;
+    }
+
+    /**
+     * Gets the member id.
+     * @return The member who has the copy.
+     */
+    public int getMemberID(){
+	return memberID;
+    }
+
+    /**
+     * Gets the unique id.
+     * @return The item lent.
+     */
+    public int getUID(){
+	return uID;
+    }
+
+    /**
+     * Gets the due date.
+     * @return When the copy is due back.
+     */
+    public Instant getDue(){
+	return Instant.ofEpochMilli(due);
+    }
+
+    long dueMillis(){
+	return due;
+    }
+
+    /**
+     * Marks the loan as reported by a sweep. Only sweeps call this, one at a time.
+     * @return false if a sweep has already reported it.
+     */
+    boolean markSwept(){
+	if(swept)
+	    return false;
+	swept = true;
+	return true;
+    }
+
+    /**
+     * Checks if the loan is overdue.
+     * @param asOf The time to check against.
+     * @return true if the copy was due back before asOf.
+     */
+    public boolean isOverdue(Instant asOf){
+	return due < asOf.toEpochMilli();
+    }
+
+    @Override
+    public int compareTo(Loan o){
+	int c = Long.compare(due, o.due);
+	return c != 0 ? c : Long.compare(sequence, o.sequence);
+    }
+
+    @Override
+    public String toString(){
+	return memberID + " has " + uID + " until " + getDue();
+    }
+}
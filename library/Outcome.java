@@ -0,0 +1,24 @@
+package library;
+/**
+ * Result codes for Library operations which can fail for ordinary reasons (no copies left, item never borrowed, etc.).
+ */
+public enum Outcome{
+    /** The operation was carried out. */
+    SUCCESS,
+    /** The item or member is not in the Library. */
+    NOT_FOUND,
+    /** There are no copies of the item available. */
+    UNAVAILABLE,
+    /** The member does not have the item checked out. */
+    NOT_CHECKED_OUT,
+    /** Every copy of the item is already in the Library. */
+    ALL_RETURNED;
+
+    /**
+     * Checks if this outcome represents a completed operation.
+     * @return true if this is SUCCESS.
+     */
+    public boolean isSuccess(){
+	return this == SUCCESS;
+    }
+}
@@ -0,0 +1,223 @@
+package library;
+import library.items.Item;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+/**
+ * A bounded cache of listing results (allGenreItems, allArtistItems, allAvailableItems) keyed by query.
+ * <p>
+ * Each entry remembers the version of the index it was computed from. The Library bumps the genre, artist and availability versions when an item is added or its availability changes, which makes the affected entries stale without touching the rest.
+ * <p>
+ * When full, a new result is only admitted if it has been asked for more often than the least frequently used entry (TinyLFU). Frequencies are kept in a small count-min sketch which is halved periodically so old popularity fades.
+ * <p>
+ * A QueryCache can be shared by threads. Changes take a lock, held only for map and counter updates and never while a listing is built. Readers never wait for it: get takes no lock and writes nothing, and hits and misses are counted, and results cached, only if the lock happens to be free.
+ */
+final class QueryCache{
+    private static final int ARTIST = 1, GENRE = 2, AVAILABLE = 3;
+    private static final int ARTIST_BUCKETS = 1024; //Artists share version counters by hash; a bump may stale a neighbour, never miss one.
+    private static final int SAMPLE = 16;
+
+    private static final class Entry{
+	final long version;
+	final String value;
+	Entry(long version, String value){
+	    this.version = version;
+	    this.value = value;
+	}
+    }
+
+    private final int capacity;
+    private final ConcurrentHashMap<Long, Entry> entries;
+    private final AtomicLongArray genreVersions = new AtomicLongArray(Item.Genre.values().length + 1);
+    private final AtomicLongArray artistVersions = new AtomicLongArray(ARTIST_BUCKETS);
+    private volatile long availableVersion = 0;
+
+    //count-min sketch
+    private final int[][] sketch = new int[4][];
+    private final int sketchMask;
+    private final int resetAt;
+    private int additions = 0;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Constructs a QueryCache.
+     * @param capacity The maximum number of cached results.
+     */
+    QueryCache(int capacity){
+	this.capacity = capacity;
+	this.entries = new ConcurrentHashMap<>(capacity * 2);
+	int width = Integer.highestOneBit(Math.max(16, capacity * 4) - 1) << 1;
+	for(int i = 0; i < sketch.length; i++)
+	    sketch[i] = new int[width];
+	sketchMask = width - 1;
+	resetAt = capacity * 10;
+    }
+
+    static long artistKey(int artistID){
+	return ((long) ARTIST << 32) | (artistID & 0xFFFFFFFFL);
+    }
+
+    static long genreKey(Item.Genre genre){
+	return ((long) GENRE << 32) | genreSlot(genre);
+    }
+
+    static long availableKey(){
+	return (long) AVAILABLE << 32;
+    }
+
+    private static int genreSlot(Item.Genre genre){
+	return genre == null ? 0 : genre.ordinal() + 1;
+    }
+
+    private static int artistSlot(int artistID){
+	int h = artistID * 0x9E3779B9;
+	return (h ^ (h >>> 16)) & (ARTIST_BUCKETS - 1);
+    }
+
+    /**
+     * Gets the current version of the index a query reads. Read this before computing a result, then pass it to put.
+     * @param key The query key.
+     * @return the version.
+     */
+    long version(long key){
+	int id = (int) key;
+	switch((int) (key >>> 32)){
+	    case ARTIST: return artistVersions.get(artistSlot(id));
+	    case GENRE: return genreVersions.get(id);
+	    default: return availableVersion;
+	}
+    }
+
+    /**
+     * Gets a cached result. This takes no lock and writes nothing, so it may be called from an optimistic read; count the hit afterwards with hit, or the miss with put.
+     * @param key The query key.
+     * @return the result, or null if it is not cached or is stale.
+     */
+    String get(long key){
+	Entry e = entries.get(key);
+	if(e != null && e.version == version(key))
+	    return e.value;
+	return null;
+    }
+
+    /**
+     * Counts a hit. One hit in SAMPLE is counted, with weight SAMPLE, and only if the lock is free.
+     * @param key The query key.
+     */
+    void hit(long key){
+	if(ThreadLocalRandom.current().nextInt(SAMPLE) == 0 && lock.tryLock()){
+	    try{
+		record(key, SAMPLE);
+	    }finally{
+		lock.unlock();
+	    }
+	}
+    }
+
+    /**
+     * Counts a miss and caches its result. Nothing is done if the lock is held by another thread; the result is simply not cached this time.
+     * @param key The query key.
+     * @param version The version read before the result was computed.
+     * @param value The result.
+     */
+    void put(long key, long version, String value){
+	if(!lock.tryLock())
+	    return;
+	try{
+	    record(key, 1);
+	    if(version != version(key))
+		return; //Already stale
+	    if(!entries.containsKey(key) && entries.size() >= capacity && !evictFor(key))
+		return;
+	    entries.put(key, new Entry(version, value));
+	}finally{
+	    lock.unlock();
+	}
+    }
+
+    /**
+     * Marks results for the item's genre and artist (and availability, if it is available) as stale.
+     * @param item A newly added item.
+     */
+    void itemAdded(Item item){
+	lock.lock();
+	try{
+	    genreVersions.incrementAndGet(genreSlot(item.getGenre()));
+	    artistVersions.incrementAndGet(artistSlot(item.getArtistID()));
+	    if(item.isAvailable())
+		availableVersion++;
+	}finally{
+	    lock.unlock();
+	}
+    }
+
+    /**
+     * Marks results which depend on an item's availability as stale, if it changed.
+     * @param oldItem The item before a check out or return.
+     * @param newItem The item after.
+     */
+    void availabilityChanged(Item oldItem, Item newItem){
+	if(oldItem.isAvailable() == newItem.isAvailable())
+	    return;
+	lock.lock();
+	try{
+	    availableVersion++;
+	}finally{
+	    lock.unlock();
+	}
+    }
+
+    /**
+     * Finds the least frequently used entry and evicts it if the candidate is used more often.
+     * @return true if room was made for the candidate.
+     */
+    private boolean evictFor(long candidate){
+	Long victim = null;
+	int victimFreq = Integer.MAX_VALUE;
+	Iterator<Map.Entry<Long, Entry>> it = entries.entrySet().iterator();
+	while(it.hasNext()){
+	    Map.Entry<Long, Entry> e = it.next();
+	    if(e.getValue().version != version(e.getKey())){ //Stale entries go first
+		it.remove();
+		return true;
+	    }
+	    int f = frequency(e.getKey());
+	    if(f < victimFreq){
+		victimFreq = f;
+		victim = e.getKey();
+	    }
+	}
+	if(victim == null || frequency(candidate) <= victimFreq)
+	    return false;
+	entries.remove(victim);
+	return true;
+    }
+
+    private int index(long key, int row){
+	long h = (key + row) * 0x9E3779B97F4A7C15L;
+	h ^= h >>> 29;
+	return (int) h & sketchMask;
+    }
+
+    private void record(long key, int weight){
+	for(int row = 0; row < sketch.length; row++)
+	    sketch[row][index(key, row)] += weight;
+	additions += weight;
+	if(additions >= resetAt){
+	    for(int[] r : sketch)
+		for(int i = 0; i < r.length; i++)
+		    r[i] >>>= 1;
+	    additions /= 2;
+	}
+    }
+
+    private int frequency(long key){
+	int f = Integer.MAX_VALUE;
+	for(int row = 0; row < sketch.length; row++)
+	    f = Math.min(f, sketch[row][index(key, row)]);
+	return f;
+    }
+}
@@ -0,0 +1,438 @@
+package library;
+import library.items.*;
+import library.people.*;
+import library.exceptions.*;
+import library.events.*;
+import library.structures.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+/**
+ *Class which represents a Library split into shards. Each shard is an SL_Library holding one contiguous range of uIDs, with its own caches, key index, change feed and due dates; Staff, Artists and Members are added to every shard, and a shard's copy of a Member holds only the loans of that shard's items.
+ *Operations on one item go to the shard which owns it, so a check out or return changes one SL_Library only. Listings are built on every shard in parallel and joined in shard order, which is uID order because the ranges are disjoint and ascending.
+ *Like SL_Library, a ShardedLibrary must not be changed by one thread while another uses it.
+ */
+public class ShardedLibrary{
+    /**
+     *A query run on one shard.
+     */
+    private interface ShardQuery<T>{
+	Stream<T> on(SL_Library shard) throws InvalidPermissionsError;
+    }
+
+    private final Staff admin;
+    private final ArrayList<SL_Library> shards;
+    //bounds[i] is the lowest uID shard i may hold; shard i holds up to bounds[i + 1] - 1
+    private int[] bounds;
+    private final ForkJoinPool pool;
+
+    /**
+     *Constructor for creating a ShardedLibrary whose listings are built on the common fork-join pool.
+     *@param admin used to initialize the ShardedLibrary
+     *@param shardCount the number of shards; the uID range is split evenly between them.
+     */
+    public ShardedLibrary(Staff admin, int shardCount){
+	this(admin, shardCount, ForkJoinPool.commonPool());
+    }
+
+    /**
+     *Constructor for creating a ShardedLibrary.
+     *@param admin used to initialize the ShardedLibrary
+     *@param shardCount the number of shards; the uID range is split evenly between them.
+     *@param pool the pool listings are built on.
+     */
+    public ShardedLibrary(Staff admin, int shardCount, ForkJoinPool pool){
+	int n = Math.max(1, shardCount);
+	this.admin = admin;
+	shards = new ArrayList<>(n);
+	bounds = new int[n];
+	long width = (1L << 32) / n;
+	for(int i = 0; i < n; i++){
+	    shards.add(new SL_Library(admin));
+	    bounds[i] = (int) (Integer.MIN_VALUE + i * width);
+	}
+	this.pool = Objects.requireNonNull(pool);
+    }
+
+    /**
+     *Finds the shard whose range holds uID.
+     */
+    private SL_Library shard(int uID){
+	int i = Arrays.binarySearch(bounds, uID);
+	return shards.get(i >= 0 ? i : -i - 2);
+    }
+
+    /**
+     *Gets the highest uID shard i may hold.
+     */
+    private long highest(int i){
+	return i + 1 < bounds.length ? bounds[i + 1] - 1L : Integer.MAX_VALUE;
+    }
+
+    /**
+     *Gets the number of shards.
+     *@return the number of shards.
+     */
+    public int getShardCount(){
+	return shards.size();
+    }
+
+    /**
+     *Gets one shard, for what the ShardedLibrary does not offer itself, such as its change feed or columns. A shard is replaced when addShard splits it, and the old one is no longer changed.
+     *@param staff Used to check correct permissions are sent to receive the shard.
+     *@param i the shard's position, from 0 for the lowest uIDs.
+     *@return the shard.
+     *@throws InvalidPermissionsError if staff has invalid permissions
+     */
+    public SL_Library getShard(Staff staff, int i) throws InvalidPermissionsError{
+	validateStaff(staff);
+	return shards.get(i);
+    }
+
+    /**
+     *Method which validates given staff member
+     *@param staff used to check if provided Staff object exists in the ShardedLibrary.
+     *@return if staff is validated, true is returned.
+     *@throws InvalidPermissionsError if staff has invalid permissions
+     */
+    public boolean validateStaff(Staff staff) throws InvalidPermissionsError{
+	return shards.get(0).validateStaff(staff);
+    }
+
+    /**
+     *Method which validates given member
+     *@param member used to check if provided Member object exists in the ShardedLibrary.
+     *@return if member is validated, true is returned.
+     *@throws InvalidPermissionsError if member has invalid permissions
+     */
+    public boolean validateMember(Member member) throws InvalidPermissionsError{
+	return shards.get(0).validateMember(member);
+    }
+
+    /**
+     *Method which adds an Item to the shard which owns its uID.
+     *@param staff Used to check correct permissions are sent to alter ShardedLibrary.
+     *@param item Item to be added.
+     *@return if the item is added, true is returned.
+     *@throws InvalidPermissionsError if staff has invalid permissions
+     *@throws DuplicateError if item with the same uID exists in the ShardedLibrary
+     */
+    public boolean addItem(Staff staff, Item item) throws InvalidPermissionsError, DuplicateError{
+	return shard(item.getUID()).addItem(staff, item);
+    }
+
+    /**
+     *Method which adds an Artist to every shard
+     *@param staff Used to check correct permissions are sent to alter ShardedLibrary.
+     *@param artist Artist to be added.
+     *@return if the artist is added, true is returned.
+     *@throws InvalidPermissionsError if staff has invalid permissions
+     *@throws DuplicateError if artist with the same artistID exists in the ShardedLibrary
+     */
+    public boolean addArtist(Staff staff, Artist artist) throws InvalidPermissionsError, DuplicateError{
+	for(SL_Library s : shards) //Every shard holds the same artists, so only the first can refuse
+	    s.addArtist(staff, artist);
+	return true;
+    }
+
+    /**
+     *Method which adds a Staff to every shard
+     *@param staff Used to check correct permissions are sent to alter ShardedLibrary.
+     *@param oStaff Staff to be added.
+     *@return if the staff is added, true is returned.
+     *@throws InvalidPermissionsError if staff has invalid permissions
+     *@throws DuplicateError if staff with the same staffID exists in the ShardedLibrary
+     */
+    public boolean addStaff(Staff staff, Staff oStaff) throws InvalidPermissionsError, DuplicateError{
+	for(SL_Library s : shards)
+	    s.addStaff(staff, oStaff);
+	return true;
+    }
+
+    /**
+     *Method which adds a Member to every shard
+     *@param staff Used to check correct permissions are sent to alter ShardedLibrary.
+     *@param member Member to be added.
+     *@return if the member is added, true is returned.
+     *@throws InvalidPermissionsError if staff has invalid permissions
+     *@throws DuplicateError if member with the same memberID exists in the ShardedLibrary
+     */
+    public boolean addMember(Staff staff, Member member) throws InvalidPermissionsError, DuplicateError{
+	for(SL_Library s : shards)
+	    s.addMember(staff, member);
+	return true;
+    }
+
+    /**
+     *Checks out the Item from the ShardedLibrary
+     *@param staff Used to check correct permissions are sent to alter ShardedLibrary.
+     *@param member Member who is receiving the copy.
+     *@param item Item to be checked out.
+     *@return if the item can be checked out, true is returned; if it cannot be checked out, false is returned.
+     *@throws InvalidPermissionsError if staff has invalid permissions
+     */
+    public boolean checkOutItem(Staff staff, Member member, Item item) throws InvalidPermissionsError{
+	return tryCheckOutItem(staff, member, item).isSuccess();
+    }
+
+    /**
+     *Checks out the Item from the shard which owns it, reporting why it could not be checked out. Failures are sent to the event sink.
+     *@param staff Used to check correct permissions are sent to alter ShardedLibrary.
+     *@param member Member who is receiving the copy.
+     *@param item Item to be checked out.
+     *@return SUCCESS if the item was checked out; NOT_FOUND if the item or member is not in the ShardedLibrary; UNAVAILABLE if there are no copies left.
+     *@throws InvalidPermissionsError if staff has invalid permissions
+     */
+    public Outcome tryCheckOutItem(Staff staff, Member member, Item item) throws InvalidPermissionsError{
+	return shard(item.getUID()).tryCheckOutItem(staff, member, item);
+    }
+
+    /**
+     *Returns checked out Item to the ShardedLibrary
+     *@param staff Used to check correct permissions are sent to alter ShardedLibrary.
+     *@param member Member who is returning the copy.
+     *@param item Item to be returned.
+     *@return if the item was successfully returned, true is returned; if it cannot be returned, false is returned.
+     *@throws InvalidPermissionsError if staff has invalid permissions
+     */
+    public boolean returnItem(Staff staff, Member member, Item item) throws InvalidPermissionsError{
+	return tryReturnItem(staff, member, item).isSuccess();
+    }
+
+    /**
+     *Returns checked out Item to the shard which owns it, reporting why it could not be returned. Failures are sent to the event sink.
+     *@param staff Used to check correct permissions are sent to alter ShardedLibrary.
+     *@param member Member who is returning the copy.
+     *@param item Item to be returned.
+     *@return SUCCESS if the item was returned; NOT_FOUND if the item or member is not in the ShardedLibrary; NOT_CHECKED_OUT if the member does not have the item; ALL_RETURNED if every copy is already in the ShardedLibrary.
+     *@throws InvalidPermissionsError if staff has invalid permissions
+     */
+    public Outcome tryReturnItem(Staff staff, Member member, Item item) throws InvalidPermissionsError{
+	return shard(item.getUID()).tryReturnItem(staff, member, item);
+    }
+
+    /**
+     *Sets the sink every shard sends events to.
+     *@param staff Used to check correct permissions are sent to alter ShardedLibrary.
+     *@param sink The sink, or null to discard events.
+     *@throws InvalidPermissionsError if staff has invalid permissions
+     */
+    public void setEventSink(Staff staff, EventSink sink) throws InvalidPermissionsError{
+	for(SL_Library s : shards)
+	    s.setEventSink(staff, sink);
+    }
+
+    /**
+     *Sets how long items are lent for by every shard. Loans already made keep their due dates.
+     *@param staff Used to check correct permissions are sent to alter ShardedLibrary.
+     *@param period The new loan period.
+     *@throws InvalidPermissionsError if staff has invalid permissions
+     */
+    public void setLoanPeriod(Staff staff, Duration period) throws InvalidPermissionsError{
+	for(SL_Library s : shards)
+	    s.setLoanPeriod(staff, period);
+    }
+
+    /**
+     *Gets every loan which is overdue, from every shard.
+     *@param staff Used to check correct permissions are sent to receive loan information.
+     *@param asOf The time to check against; usually Instant.now().
+     *@return the loans due before asOf, in order of due date.
+     *@throws InvalidPermissionsError if staff has invalid permissions
+     */
+    public List<Loan> getOverdueLoans(Staff staff, Instant asOf) throws InvalidPermissionsError{
+	validateStaff(staff);
+	return fanOut(s -> s.getOverdueLoans(staff, asOf).stream()).sorted().toList();
+    }
+
+    /**
+     *Gets the loans which have become overdue since the last sweep, from every shard (see SL_Library.sweepOverdueLoans).
+     *@param staff Used to check correct permissions are sent to receive loan information.
+     *@param asOf The time to check against; usually Instant.now().
+     *@return the loans due before asOf which no earlier sweep reported, in order of due date.
+     *@throws InvalidPermissionsError if staff has invalid permissions
+     */
+    public List<Loan> sweepOverdueLoans(Staff staff, Instant asOf) throws InvalidPermissionsError{
+	validateStaff(staff);
+	return fanOut(s -> s.sweepOverdueLoans(staff, asOf).stream()).sorted().toList();
+    }
+
+    /**
+     *Gets a member's loans with their due dates, from every shard.
+     *@param staff Used to check correct permissions are sent to receive loan information.
+     *@param member Member whose loans are wanted.
+     *@return the member's loans, in order of due date.
+     *@throws InvalidPermissionsError if staff has invalid permissions or member is not a member
+     */
+    public List<Loan> getLoans(Staff staff, Member member) throws InvalidPermissionsError{
+	validateStaff(staff);
+	validateMember(member);
+	return fanOut(s -> s.getLoans(staff, member).stream()).sorted().toList();
+    }
+
+    /**
+     *Splits the largest shard whose range holds more than one uID in two, so a new shard takes the upper half of its items, with their loans, due dates and holds. The range is split at its median uID; an empty or single-item shard is split at the middle of its range.
+     *Both halves are new SL_Libraries; the shard split is no longer changed, so its change feed ends.
+     *@param staff Used to check correct permissions are sent to alter ShardedLibrary.
+     *@throws InvalidPermissionsError if staff has invalid permissions
+     *@throws IllegalStateException if every shard's range holds a single uID
+     */
+    public void addShard(Staff staff) throws InvalidPermissionsError{
+	validateStaff(staff);
+	int largest = -1;
+	for(int i = 0; i < shards.size(); i++){
+	    if(highest(i) > bounds[i] && (largest == -1 || shards.get(i).itemCount() > shards.get(largest).itemCount()))
+		largest = i;
+	}
+	if(largest == -1)
+	    throw new IllegalStateException("Every shard holds a single uID");
+	SL_Library old = shards.get(largest);
+	int split = splitKey(old, largest);
+	SL_Library lower = new SL_Library(admin), upper = new SL_Library(admin);
+	old.copyRange(lower, bounds[largest], split - 1);
+	old.copyRange(upper, split, (int) highest(largest));
+	shards.set(largest, lower);
+	shards.add(largest + 1, upper);
+	bounds = insertBound(bounds, largest + 1, split);
+    }
+
+    /**
+     *Chooses where to split shard i's range, which must hold more than one uID: its median uID if that leaves both halves non-empty, otherwise the middle of the range. Either is above the range's lowest uID, so neither half is empty.
+     */
+    private int splitKey(SL_Library shard, int i) throws InvalidPermissionsError{
+	long low = bounds[i];
+	long high = highest(i);
+	if(shard.itemCount() >= 2){
+	    List<Integer> keys = shard.getFrozenCatalogue(admin).getKeys();
+	    int median = keys.get(keys.size() / 2);
+	    if(median > low)
+		return median;
+	}
+	return (int) ((low + high + 1) >> 1);
+    }
+
+    private static int[] insertBound(int[] bounds, int at, int bound){
+	int[] b = new int[bounds.length + 1];
+	System.arraycopy(bounds, 0, b, 0, at);
+	b[at] = bound;
+	System.arraycopy(bounds, at, b, at + 1, bounds.length - at);
+	return b;
+    }
+
+    /**
+     *Runs a query on every shard in parallel.
+     *@return the results, in shard order.
+     */
+    private <T> Stream<T> fanOut(ShardQuery<T> query){
+	ArrayList<Callable<List<T>>> tasks = new ArrayList<>(shards.size());
+	for(SL_Library s : shards)
+	    tasks.add(() -> query.on(s).toList());
+	ArrayList<List<T>> parts = new ArrayList<>(tasks.size());
+	try{
+	    for(Future<List<T>> f : pool.invokeAll(tasks))
+		parts.add(f.get());
+	}catch(InterruptedException e){
+	    Thread.currentThread().interrupt();
+	    throw new IllegalStateException("Interrupted while querying shards", e);
+	}catch(ExecutionException e){
+	    throw new IllegalStateException("Could not query shards", e.getCause());
+	}
+	return parts.stream().flatMap(List::stream);
+    }
+
+    /**
+     *Checks that person is a valid Member or Staff of the ShardedLibrary.
+     *@throws InvalidPermissionsError if person has invalid permissions
+     */
+    private void validatePerson(Person person) throws InvalidPermissionsError{
+	switch (person){
+	    case Member m -> validateMember(m);
+	    case Staff s -> validateStaff(s);
+	    default -> throw new InvalidPermissionsError("null value");
+	}
+    }
+
+    /**
+     *Returns the current catalogue, joined from every shard.
+     *@param person Used to check correct permissions are sent to receive catalogue information.
+     *@return a copy of the catalogue.
+     *@throws InvalidPermissionsError if person has invalid permissions
+     */
+    public SkipList<Integer, Item> getCatalogue(Person person) throws InvalidPermissionsError{
+	validatePerson(person);
+	SkipList.SortedBuilder<Integer, Item> copy = new SkipList.SortedBuilder<>(SkipList.levelsFor(1 << 20));
+	for(SL_Library s : shards){
+	    for(Item i : s.getFrozenCatalogue(person).values())
+		copy.add(i.getUID(), i);
+	}
+	return copy.build();
+    }
+
+    /**
+     *Returns all items associated with the given Artist in the ShardedLibrary.
+     *@param person Used to check correct permissions are sent to receive item information.
+     *@param artist Artist to match with items.
+     *@return String listing all items associated with given artist.
+     *@throws InvalidPermissionsError if person has invalid permissions
+     */
+    public String allArtistItems(Person person, Artist artist) throws InvalidPermissionsError{
+	validatePerson(person);
+	return ItemReport.toString("Results for " + artist + ": ", fanOut(s -> s.streamArtistItems(person, artist)));
+    }
+
+    /**
+     *Returns all items associated with the given Genre in the ShardedLibrary.
+     *@param person Used to check correct permissions are sent to receive item information.
+     *@param genre Genre to match with items.
+     *@return String listing all items associated with given genre.
+     *@throws InvalidPermissionsError if person has invalid permissions
+     */
+    public String allGenreItems(Person person, Item.Genre genre) throws InvalidPermissionsError{
+	validatePerson(person);
+	return ItemReport.toString("Results for " + genre + ": ", fanOut(s -> s.streamGenreItems(person, genre)));
+    }
+
+    /**
+     *Returns all available items in the ShardedLibrary.
+     *@param person Used to check correct permissions are sent to receive available item information.
+     *@return String listing all available items.
+     *@throws InvalidPermissionsError if person has invalid permissions
+     */
+    public String allAvailableItems(Person person) throws InvalidPermissionsError{
+	validatePerson(person);
+	return ItemReport.toString("Available Titles: ", fanOut(s -> s.streamAvailableItems(person)));
+    }
+
+    /**
+     *Returns all items checked out by Member in the ShardedLibrary, in uID order.
+     *@param staff Used to check correct permissions are sent to receive Member information.
+     *@param member Member to find checked out items.
+     *@return String listing all items checked out by member.
+     *@throws InvalidPermissionsError if staff has invalid permissions
+     */
+    public String memberCheckedOutItems(Staff staff, Member member) throws InvalidPermissionsError{
+	validateStaff(staff);
+	Stream<Item> items = fanOut(s -> s.streamMemberCheckedOutItems(staff, member)).sorted(Comparator.comparingInt(Item::getUID));
+	return ItemReport.toString("Results for " + member + " items checked out: ", items);
+    }
+
+    /**
+     *Returns all information about the given item.
+     *@param person Used to check correct permissions are sent to receive item information.
+     *@param uID unique ID associated with desired item.
+     *@return String listing all information present for the given item.
+     *@throws InvalidPermissionsError if person has invalid permissions
+     */
+    public String getDetailedItemInfo(Person person, int uID) throws InvalidPermissionsError{
+	return shard(uID).getDetailedItemInfo(person, uID);
+    }
+}
@@ -0,0 +1,63 @@
+package library;
+/**
+ * The number of items, copies and available copies in a group of the Library's catalogue, such as a genre or an artist's works.
+ */
+public final class Totals{
+    private final long items;
+    private final long copies;
+    private final long available;
+
+    /**
+     * Constructs Totals.
+     * @param items The number of items.
+     * @param copies The number of copies of those items.
+     * @param available The number of those copies which are available.
+     */
+    public Totals(long items, long copies, long available){
+	this.items = items;
+	this.copies = copies;
+	this.available = available;
+    }
+
+    /**
+     * Gets the number of items.
+     * @return The number of items in the group.
+     */
+    public long getItems(){
+	return items;
+    }
+
+    /**
+     * Gets the number of copies.
+     * @return The number of copies of the group's items.
+     */
+    public long getCopies(){
+	return copies;
+    }
+
+    /**
+     * Gets the number of available copies.
+     * @return The number of the group's copies which are available.
+     */
+    public long getAvailableCopies(){
+	return available;
+    }
+
+    @Override
+    public boolean equals(Object o){
+	if(!(o instanceof Totals))
+	    return false;
+	Totals t = (Totals)o;
+	return t.items == items && t.copies == copies && t.available == available;
+    }
+
+    @Override
+    public int hashCode(){
+	return Long.hashCode(items) * 961 + Long.hashCode(copies) * 31 + Long.hashCode(available);
+    }
+
+    @Override
+    public String toString(){
+	return items + " items, " + available + " of " + copies + " copies available";
+    }
+}
@@ -0,0 +1,76 @@
+package library.events;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+/**
+ * An EventSink which hands events to another sink on a background thread. Publishing never blocks; if the queue is full the event is dropped and counted.
+ */
+public class AsyncEventSink implements EventSink, AutoCloseable{
+    private final BlockingQueue<LibraryEvent> queue;
+    private final EventSink delegate;
+    private final Thread worker;
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean closed = false;
+
+    /**
+     * Constructs an AsyncEventSink and starts its worker thread.
+     * @param delegate The sink that events are delivered to (e.g. {@code System.out::println}).
+     * @param capacity The maximum number of undelivered events.
+     */
+    public AsyncEventSink(EventSink delegate, int capacity){
+	this.delegate = delegate;
+	this.queue = new ArrayBlockingQueue<>(capacity);
+	this.worker = new Thread(this::drain, "library-events");
+	worker.setDaemon(true);
+	worker.start();
+    }
+
+    /**
+     * Constructs an AsyncEventSink with room for 1024 undelivered events.
+     * @param delegate The sink that events are delivered to.
+     */
+    public AsyncEventSink(EventSink delegate){
+	this(delegate, 1024);
+    }
+
+    public void publish(LibraryEvent event){
+	if(closed || !queue.offer(event))
+	    dropped.incrementAndGet();
+    }
+
+    /**
+     * Gets the number of events which were dropped because the queue was full or the sink was closed.
+     * @return the number of dropped events.
+     */
+    public long getDropped(){
+	return dropped.get();
+    }
+
+    private void drain(){
+	while(!closed || !queue.isEmpty()){
+	    try{
+		LibraryEvent e = queue.poll(100, TimeUnit.MILLISECONDS);
+		if(e != null)
+		    delegate.publish(e);
+	    }catch(InterruptedException e){
+		return;
+	    }catch(RuntimeException e){
+		//A faulty delegate must not kill the worker.
+	    }
+	}
+    }
+
+    /**
+     * Stops accepting events and waits for the queued ones to be delivered.
+     */
+    @Override
+    public void close(){
+	closed = true;
+	try{
+	    worker.join();
+	}catch(InterruptedException e){
+	    Thread.currentThread().interrupt();
+	}
+    }
+}
@@ -0,0 +1,95 @@
+package library.events;
+import library.items.Item;
+/**
+ * A change made to the Library, as delivered by a ChangeFeed.
+ */
+public final class ChangeEvent{
+    /**
+     * Enum for the kind of change.
+     */
+    public static enum Type{
+	ADD_ITEM, ADD_ARTIST, ADD_MEMBER, CHECK_OUT, RETURN;
+    }
+
+    private final long sequence;
+    private final Type type;
+    private final int uID;
+    private final int memberID;
+    private final int artistID;
+    private final Item item;
+
+    /**
+     * Constructs a ChangeEvent.
+     * @param sequence Position of the change in the feed.
+     * @param type The kind of change.
+     * @param uID The item changed, or 0.
+     * @param memberID The member involved, or 0.
+     * @param artistID The artist added, or 0.
+     * @param item The item as it is after the change, or null.
+     */
+    public ChangeEvent(long sequence, Type type, int uID, int memberID, int artistID, Item item){
+	this.sequence = sequence;
+	this.type = type;
+	this.uID = uID;
+	this.memberID = memberID;
+	this.artistID = artistID;
+	this.item = item;
+    }
+
+    /**
+     * Gets the sequence number.
+     * @return Position of the change in the feed; each change is one greater than the last.
+     */
+    public long getSequence(){
+	return sequence;
+    }
+
+    /**
+     * Gets the type.
+     * @return The kind of change.
+     */
+    public Type getType(){
+	return type;
+    }
+
+    /**
+     * Gets the unique id.
+     * @return The item added, checked out or returned; 0 for other changes.
+     */
+    public int getUID(){
+	return uID;
+    }
+
+    /**
+     * Gets the member id.
+     * @return The member added, or who checked out or returned an item; 0 for other changes.
+     */
+    public int getMemberID(){
+	return memberID;
+    }
+
+    /**
+     * Gets the artist id.
+     * @return The artist added; 0 for other changes.
+     */
+    public int getArtistID(){
+	return artistID;
+    }
+
+    /**
+     * Gets the item.
+     * @return The item as it is after the change (so its available copies are current); null for member and artist changes.
+     */
+    public Item getItem(){
+	return item;
+    }
+
+    @Override
+    public String toString(){
+	return switch(type){
+	    case ADD_ITEM, CHECK_OUT, RETURN -> String.format("#%d %s 0x%x%s", sequence, type, uID, memberID != 0 ? " by " + memberID : "");
+	    case ADD_MEMBER -> String.format("#%d %s %d", sequence, type, memberID);
+	    case ADD_ARTIST -> String.format("#%d %s 0x%x", sequence, type, artistID);
+	};
+    }
+}
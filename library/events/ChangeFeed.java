@@ -0,0 +1,210 @@
+package library.events;
+import library.exceptions.FeedGapException;
+import library.items.Item;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+/**
+ * An ordered feed of the changes made to a Library. The most recent changes are kept in a fixed-size ring buffer; readers keep their own position (a sequence number), so any number of them can follow the feed and resume where they left off.
+ * A reader which falls further behind than the buffer holds gets a FeedGapException and must resynchronize from a full copy.
+ * Sequence numbers start at 1 for each Library instance.
+ * <p>
+ * Publishing takes no lock: a writer claims a sequence number from a counter and then stores its change in that number's slot, so writers only contend on the counter. A reader stops at the first slot whose change is not stored yet, so changes are still read in order. Readers waiting for changes park, and a writer wakes them only if there are any.
+ */
+public class ChangeFeed{
+    private final AtomicReferenceArray<ChangeEvent> ring;
+    private final int mask;
+    private final AtomicLong nextSeq = new AtomicLong(1);
+    //Readers parked in await, and how many there are
+    private final ConcurrentLinkedQueue<Thread> waiters = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    /**
+     * Constructs a ChangeFeed.
+     * @param capacity The number of changes kept; rounded up to a power of two.
+     */
+    public ChangeFeed(int capacity){
+	int n = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+	ring = new AtomicReferenceArray<>(n);
+	mask = n - 1;
+    }
+
+    /**
+     * Adds a change to the feed.
+     * @param type The kind of change.
+     * @param uID The item changed, or 0.
+     * @param memberID The member involved, or 0.
+     * @param artistID The artist added, or 0.
+     * @param item The item as it is after the change, or null.
+     * @return the change's sequence number.
+     */
+    public long publish(ChangeEvent.Type type, int uID, int memberID, int artistID, Item item){
+	long seq = nextSeq.getAndIncrement();
+	ChangeEvent event = new ChangeEvent(seq, type, uID, memberID, artistID, item);
+	int slot = (int) seq & mask;
+	for(ChangeEvent old = ring.get(slot); old == null || old.getSequence() < seq; old = ring.get(slot)){
+	    //Fails only if a writer a whole ring ahead stored first, in which case this change is already too old to read
+	    if(ring.compareAndSet(slot, old, event))
+		break;
+	}
+	//Read after the store, as await registers before it looks: one of the two sees the other
+	if(waiting.get() != 0){
+	    for(Thread t : waiters)
+		LockSupport.unpark(t);
+	}
+	return seq;
+    }
+
+    /**
+     * Gets the sequence number the next change will have.
+     * @return the next sequence number; a reader which wants only new changes starts here.
+     */
+    public long nextSequence(){
+	return nextSeq.get();
+    }
+
+    /**
+     * Gets a batch of changes without waiting.
+     * @param fromSeq The sequence number of the first change wanted.
+     * @param max The most changes to return.
+     * @return the changes from fromSeq onward, in order; empty if there are none yet.
+     * @throws FeedGapException if changes from fromSeq onward are no longer held.
+     */
+    public List<ChangeEvent> poll(long fromSeq, int max) throws FeedGapException{
+	return read(fromSeq, max);
+    }
+
+    /**
+     * Gets a batch of changes, waiting for at least one if there are none yet.
+     * @param fromSeq The sequence number of the first change wanted.
+     * @param max The most changes to return.
+     * @param timeout How long to wait.
+     * @param unit The unit of timeout.
+     * @return the changes from fromSeq onward, in order; empty if the wait timed out.
+     * @throws FeedGapException if changes from fromSeq onward are no longer held.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    public List<ChangeEvent> await(long fromSeq, int max, long timeout, TimeUnit unit) throws FeedGapException, InterruptedException{
+	long deadline = System.nanoTime() + unit.toNanos(timeout);
+	List<ChangeEvent> batch = read(fromSeq, max);
+	if(!batch.isEmpty())
+	    return batch;
+	Thread self = Thread.currentThread();
+	waiters.add(self);
+	waiting.incrementAndGet();
+	try{
+	    while(true){
+		batch = read(fromSeq, max);
+		long nanos = deadline - System.nanoTime();
+		if(!batch.isEmpty() || nanos <= 0)
+		    return batch;
+		LockSupport.parkNanos(this, nanos);
+		if(Thread.interrupted())
+		    throw new InterruptedException();
+	    }
+	}finally{
+	    waiting.decrementAndGet();
+	    waiters.remove(self);
+	}
+    }
+
+    private List<ChangeEvent> read(long fromSeq, int max) throws FeedGapException{
+	long next = nextSeq.get();
+	long oldest = Math.max(1, next - ring.length());
+	if(fromSeq < oldest)
+	    throw new FeedGapException("Changes before " + oldest + " are no longer held", oldest);
+	int n = (int) Math.min(max, Math.max(0, next - fromSeq));
+	ArrayList<ChangeEvent> batch = new ArrayList<>(n);
+	for(long s = fromSeq; s < fromSeq + n; s++){
+	    ChangeEvent e = ring.get((int) s & mask);
+	    if(e == null || e.getSequence() < s) //Claimed but not stored yet
+		break;
+	    if(e.getSequence() > s){ //Overwritten while we read
+		if(!batch.isEmpty())
+		    break;
+		oldest = Math.max(1, nextSeq.get() - ring.length());
+		throw new FeedGapException("Changes before " + oldest + " are no longer held", oldest);
+	    }
+	    batch.add(e);
+	}
+	return batch;
+    }
+
+    /**
+     * A reader which follows the feed on its own thread.
+     */
+    public final class Subscription implements AutoCloseable{
+	private final Thread thread;
+	private volatile long position;
+	private volatile boolean closed = false;
+	private volatile FeedGapException gap = null;
+
+	private Subscription(long fromSeq, int maxBatch, Consumer<List<ChangeEvent>> consumer){
+	    position = fromSeq;
+	    thread = Thread.ofVirtual().name("library-feed").unstarted(() -> {
+		    try{
+			while(!closed){
+			    List<ChangeEvent> batch = await(position, maxBatch, 100, TimeUnit.MILLISECONDS);
+			    if(batch.isEmpty())
+				continue;
+			    consumer.accept(batch);
+			    position += batch.size();
+			}
+		    }catch(FeedGapException e){
+			gap = e;
+		    }catch(InterruptedException e){
+			//closed
+		    }
+		});
+	}
+
+	/**
+	 * Gets the sequence number of the next change to be delivered.
+	 * @return the position, which can be used to resume later.
+	 */
+	public long getPosition(){
+	    return position;
+	}
+
+	/**
+	 * Gets the gap which stopped the subscription, if any.
+	 * @return the gap, or null if the subscription is still following the feed.
+	 */
+	public FeedGapException getGap(){
+	    return gap;
+	}
+
+	/**
+	 * Stops delivery and waits for the delivering thread to finish its current batch.
+	 */
+	@Override
+	public void close(){
+	    closed = true;
+	    thread.interrupt();
+	    try{
+		thread.join();
+	    }catch(InterruptedException e){
+		Thread.currentThread().interrupt();
+	    }
+	}
+    }
+
+    /**
+     * Delivers changes to consumer, in batches, on a separate virtual thread until the subscription is closed. Delivery stops if the consumer falls too far behind (see Subscription.getGap).
+     * @param fromSeq The sequence number of the first change wanted.
+     * @param maxBatch The most changes passed to consumer at once.
+     * @param consumer Receives each batch, in order.
+     * @return the subscription.
+     */
+    public Subscription subscribe(long fromSeq, int maxBatch, Consumer<List<ChangeEvent>> consumer){
+	Subscription s = new Subscription(fromSeq, maxBatch, consumer);
+	s.thread.start();
+	return s;
+    }
+}
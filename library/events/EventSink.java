@@ -0,0 +1,17 @@
+package library.events;
+/**
+ * Receives LibraryEvents. Implementations are called on the thread performing the operation, so they should return quickly; see AsyncEventSink.
+ */
+@FunctionalInterface
+public interface EventSink{
+    /**
+     * A sink which drops every event.
+     */
+    public static final EventSink DISCARD = e -> {};
+
+    /**
+     * Publishes an event.
+     * @param event The event to be published.
+     */
+    public void publish(LibraryEvent event);
+}
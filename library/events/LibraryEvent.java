@@ -0,0 +1,76 @@
+package library.events;
+import library.Outcome;
+/**
+ * An event describing an operation performed on the Library. Events are cheap to create; the message is only built when toString is called.
+ */
+public final class LibraryEvent{
+    /**
+     * Enum for the kind of operation the event describes.
+     */
+    public static enum Type{
+	CHECK_OUT, RETURN;
+    }
+
+    private final Type type;
+    private final Outcome outcome;
+    private final int memberID;
+    private final int uID;
+    private final String title;
+
+    /**
+     * Constructs a LibraryEvent.
+     * @param type The operation that was attempted.
+     * @param outcome The result of the operation.
+     * @param memberID The member involved.
+     * @param uID The unique ID of the item involved.
+     * @param title The title of the item involved, or null if the item was not found.
+     */
+    public LibraryEvent(Type type, Outcome outcome, int memberID, int uID, String title){
+	this.type = type;
+	this.outcome = outcome;
+	this.memberID = memberID;
+	this.uID = uID;
+	this.title = title;
+    }
+
+    /**
+     * Gets the type.
+     * @return The operation that was attempted.
+     */
+    public Type getType(){
+	return type;
+    }
+
+    /**
+     * Gets the outcome.
+     * @return The result of the operation.
+     */
+    public Outcome getOutcome(){
+	return outcome;
+    }
+
+    /**
+     * Gets the member id.
+     * @return The member ID is returned.
+     */
+    public int getMemberID(){
+	return memberID;
+    }
+
+    /**
+     * Gets the unique id.
+     * @return The unique ID of the item is returned.
+     */
+    public int getUID(){
+	return uID;
+    }
+
+    @Override
+    public String toString(){
+	String name = title != null ? title : String.format("0x%x", uID);
+	return switch(type){
+	    case CHECK_OUT -> String.format("Could not check out %s for %d: %s", name, memberID, outcome);
+	    case RETURN -> String.format("%d could not return %s: %s", memberID, name, outcome);
+	};
+    }
+}
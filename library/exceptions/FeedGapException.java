@@ -0,0 +1,26 @@
+package library.exceptions;
+/**
+ * An exception which is thrown when a change feed reader asks for changes which have already been overwritten.
+ */
+public class FeedGapException extends Exception{
+    private static final long serialVersionUID = 64398177;
+    private final long oldest;
+
+    /**
+     * Constructor for FeedGapException
+     * @param msg Message to be sent to the user upon failure.
+     * @param oldest The oldest sequence number still available; the reader should resynchronize and resume from here.
+     */
+    public FeedGapException(String msg, long oldest){
+	super(msg);
+	this.oldest = oldest;
+    }
+
+    /**
+     * Gets the oldest sequence number still available.
+     * @return the sequence number.
+     */
+    public long getOldest(){
+	return oldest;
+    }
+}
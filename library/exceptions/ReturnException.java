@@ -8,6 +8,6 @@ public class ReturnException extends Exception{
      * @param msg Message to be sent to the user upon failure. Ideally, it should indicate why exactly the return could not be accomplished.
      */
     public ReturnException(String msg){
-	super(msg);
+	super(msg, null, false, false); //No stack trace; these are expected outcomes, not bugs.
     }
 }
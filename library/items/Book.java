@@ -1,17 +1,20 @@
 package library.items;
 import library.items.Item;
 import library.exceptions.*;
+import library.structures.Fingerprint;
 import java.util.ArrayList;
+import java.util.List;
 /**
  * Represents a Book Item in the Library.
  */
 public class Book implements Item{
     private final int uID;
+    private final long key;
     private final int copies;
     private final int copiesAvailable;
     private final String title;
     private final String description;
-    private final ArrayList<String> subjects;
+    private final Subjects subjects;
     private final Genre genre; 
     private final int authorID;
     private final int pageCount;
@@ -20,12 +23,13 @@ public class Book implements Item{
      * A Builder object for a Book Item.
      */
     public static class BookBuilder{
-	private final int uID;
+	private int uID;
+	private long key;
 	private int copies = 1;
 	private int copiesAvailable;
 	private String title;
 	private String description;
-	private ArrayList<String> subjects = new ArrayList<String>();
+	private Subjects subjects = Subjects.NONE;
 	private Genre genre; 
 	private int authorID;
         private int pageCount; 
@@ -37,6 +41,18 @@ public class Book implements Item{
 	public BookBuilder(String title){
 	    this.title = title;
 	    this.uID = (title+"BOOK").hashCode();
+	    this.key = Fingerprint.of(title + "BOOK");
+	}
+
+	/**
+	 * Gives the Book an explicit 64-bit id, such as one issued by another catalogue, instead of identifying it by its title. The key is then id and the unique ID is Long.hashCode(id), so Books given different ids below 2^32 never share a unique ID, however many there are; titles' hash codes start to collide at tens of thousands.
+	 * @param id The id for the Book.
+	 * @return Returns the same BookBuilder instance.
+	 */
+	public BookBuilder setID(long id){
+	    this.key = id;
+	    this.uID = Long.hashCode(id);
+	    return this;
 	}
 
 	/**
@@ -66,10 +82,7 @@ public class Book implements Item{
 	 * @return Returns the same BookBuilder instance.
 	 */	
 	public BookBuilder setSubjects(String... subjects){
-	    this.subjects = new ArrayList<>();
-	    for(String s: subjects){
-		this.subjects.add(s);
-	    }
+	    this.subjects = Subjects.of(subjects);
 	    return this;
 	}
 
@@ -94,6 +107,26 @@ public class Book implements Item{
 	    return this;
 	}
 
+	/**
+	 * Sets the author by id, e.g. when restoring a saved Book.
+	 * @param authorID The id of the Book's author.
+	 * @return Returns the same BookBuilder instance.
+	 */
+	public BookBuilder setAuthorID(int authorID){
+	    this.authorID = authorID;
+	    return this;
+	}
+
+	/**
+	 * Sets the number of available copies. Must be called after setCopies, which resets it.
+	 * @param copiesAvailable The number of copies of the Book which are not checked out.
+	 * @return Returns the same BookBuilder instance.
+	 */
+	public BookBuilder setAvailableCopies(int copiesAvailable){
+	    this.copiesAvailable = copiesAvailable;
+	    return this;
+	}
+
 	/**
 	 * Sets the page count.
 	 * @param pageCount The number of pages for the Book.
@@ -119,10 +152,11 @@ public class Book implements Item{
      */
     protected Book(BookBuilder b){
 	uID = b.uID;
+	key = b.key;
 	copies = b.copies;
 	copiesAvailable = b.copiesAvailable;
 	title = b.title;
-	description = b.description;
+	description = b.description != null ? b.description.intern() : null; //Imports repeat descriptions; the JVM drops interned strings nothing uses
 	subjects = b.subjects;
 	genre = b.genre;
 	authorID = b.authorID;
@@ -135,12 +169,13 @@ public class Book implements Item{
      * @param newCopiesAvailable the new number of copies available.
      */
     private Book(Book b, int newCopiesAvailable){
-	uID = b.getUID();
+	uID = b.uID;
+	key = b.key;
         copies = b.getCopies();
 	copiesAvailable = newCopiesAvailable;
 	title = b.getTitle();
-	description = b.getDescription();
-	subjects = b.getSubjects();
+	description = b.description;
+	subjects = b.subjects; //Immutable, so shared rather than copied
 	genre = b.getGenre();
 	authorID = b.getAuthorID();
 	pageCount = b.getPageCount();
@@ -153,25 +188,63 @@ public class Book implements Item{
     }
 
     public Item checkOut() throws CheckOutException{
-	if(isAvailable())
-	    return new Book(this, copiesAvailable - 1);
+	Item i = tryCheckOut();
+	if(i != null)
+	    return i;
         throw new CheckOutException("Could not check out " + title  + "!");
     }
 
     public Item returnItem() throws ReturnException{
+	Item i = tryReturnItem();
+	if(i != null)
+	    return i;
+	throw new ReturnException("Could not return " + title  + "!");
+    }
+
+    public Item tryCheckOut(){
+	if(isAvailable())
+	    return new Book(this, copiesAvailable - 1);
+	return null;
+    }
+
+    public Item tryReturnItem(){
 	if(copiesAvailable < copies)
 	    return new Book(this, copiesAvailable + 1);
-        throw new ReturnException("Could not return " + title  + "!");
+	return null;
+    }
+
+    public Item withAvailableCopies(int copiesAvailable){
+	if(copiesAvailable < 0 || copiesAvailable > copies)
+	    throw new IllegalArgumentException(copiesAvailable + " copies of " + title + " cannot be available");
+	if(copiesAvailable == this.copiesAvailable)
+	    return this;
+	return new Book(this, copiesAvailable);
     }
 
     public ArrayList<String> getSubjects(){
 	return new ArrayList<String>(subjects);
     }
 
+    public List<String> getSubjectList(){
+	return subjects;
+    }
+
+    public int getSubjectCount(){
+	return subjects.size();
+    }
+
+    public String getSubject(int index){
+	return subjects.get(index);
+    }
+
     public int getUID(){
 	return uID;
     }
 
+    public long getKey(){
+	return key;
+    }
+
     public String getDescription(){
 	return description;
     }
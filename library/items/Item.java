@@ -1,5 +1,6 @@
 package library.items;
 import java.util.ArrayList;
+import java.util.List;
 import library.exceptions.*;
 import library.people.Artist;
 /**
@@ -29,16 +30,54 @@ public interface Item{
      *@throws ReturnException if the item cannot be returned.
      */
     public Item returnItem() throws ReturnException;
+    /**
+     *Checks out the Item from the Library without throwing.
+     *@return if available, returns a new Item with the number of copies available decreased by one; otherwise, returns null.
+     */
+    public Item tryCheckOut();
+    /**
+     *Returns the Item to the Library without throwing.
+     *@return if possible, returns a new Item with the number of copies available increased by one; otherwise, returns null.
+     */
+    public Item tryReturnItem();
+    /**
+     *Gets a copy of the Item with a given number of copies available.
+     *@param copiesAvailable The number of copies available, between 0 and getCopies().
+     *@return a new Item, or this Item if the number is unchanged.
+     *@throws IllegalArgumentException if copiesAvailable is not between 0 and getCopies().
+     */
+    public Item withAvailableCopies(int copiesAvailable);
     /**
      *Gets subjects from Item.
      *@return A copy of the subject list is returned.
      */
     public ArrayList<String> getSubjects();
+    /**
+     *Gets subjects from Item without copying them.
+     *@return An immutable list of the subjects, shared with other items that have the same subjects.
+     */
+    public List<String> getSubjectList();
+    /**
+     *Gets the number of subjects.
+     *@return The number of subjects is returned.
+     */
+    public int getSubjectCount();
+    /**
+     *Gets a single subject without copying the subject list.
+     *@param index Position of the subject, between 0 and getSubjectCount() - 1.
+     *@return The subject at the given position.
+     */
+    public String getSubject(int index);
     /**
      *Gets the unique id.
      *@return The unique id is returned.
      */
     public int getUID();
+    /**
+     *Gets the key: the Item's explicit 64-bit id if it was built with one, or else a 64-bit fingerprint of what the unique id is a 32-bit hash of, so that it tells apart Items whose unique ids collide.
+     *@return The key is returned.
+     */
+    public long getKey();
     /**
      *Gets the description.
      *@return The description is returned.
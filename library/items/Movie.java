@@ -1,18 +1,21 @@
 package library.items;
 import library.items.Item;
 import library.exceptions.*;
+import library.structures.Fingerprint;
 import java.util.ArrayList;
+import java.util.List;
 import java.io.*;
 /**
  * Represents a Movie Item in the Library.
  */
 public class Movie implements Item{
     private final int uID;
+    private final long key;
     private final int copies;
     private final int copiesAvailable;
     private final String title;
     private final String description;
-    private final ArrayList<String> subjects;
+    private final Subjects subjects;
     private final Genre genre; 
     private final int directorID;
     private final int duration; //in seconds
@@ -21,12 +24,13 @@ public class Movie implements Item{
      * A Builder object for a Movie Item.
      */
     public static class MovieBuilder{
-	private final int uID;
+	private int uID;
+	private long key;
 	private int copies;
 	private int copiesAvailable;
 	private String title;
 	private String description;
-	private ArrayList<String> subjects = new ArrayList<>();
+	private Subjects subjects = Subjects.NONE;
 	private Genre genre; 
 	private int directorID;
         private int duration; 
@@ -38,6 +42,18 @@ public class Movie implements Item{
 	public MovieBuilder(String title){
 	    this.title = title;
 	    this.uID = (title+"MOVIE").hashCode();
+	    this.key = Fingerprint.of(title + "MOVIE");
+	}
+
+	/**
+	 * Gives the Movie an explicit 64-bit id, such as one issued by another catalogue, instead of identifying it by its title. The key is then id and the unique ID is Long.hashCode(id), so Movies given different ids below 2^32 never share a unique ID, however many there are; titles' hash codes start to collide at tens of thousands.
+	 * @param id The id for the Movie.
+	 * @return Returns the same MovieBuilder instance.
+	 */
+	public MovieBuilder setID(long id){
+	    this.key = id;
+	    this.uID = Long.hashCode(id);
+	    return this;
 	}
 
 	/**
@@ -67,10 +83,7 @@ public class Movie implements Item{
 	 * @return Returns the same MovieBuilder instance.
 	 */	
 	public MovieBuilder setSubjects(String... subjects){
-	    this.subjects = new ArrayList<>();
-	    for(String s: subjects){
-		this.subjects.add(s);
-	    }
+	    this.subjects = Subjects.of(subjects);
 	    return this;
 	}
 
@@ -95,6 +108,26 @@ public class Movie implements Item{
 	    return this;
 	}
 
+	/**
+	 * Sets the director by id, e.g. when restoring a saved Movie.
+	 * @param directorID The id of the Movie's director.
+	 * @return Returns the same MovieBuilder instance.
+	 */
+	public MovieBuilder setDirectorID(int directorID){
+	    this.directorID = directorID;
+	    return this;
+	}
+
+	/**
+	 * Sets the number of available copies. Must be called after setCopies, which resets it.
+	 * @param copiesAvailable The number of copies of the Movie which are not checked out.
+	 * @return Returns the same MovieBuilder instance.
+	 */
+	public MovieBuilder setAvailableCopies(int copiesAvailable){
+	    this.copiesAvailable = copiesAvailable;
+	    return this;
+	}
+
 	/**
 	 * Sets the duration.
 	 * @param seconds The duration of the Movie in seconds.
@@ -121,10 +154,11 @@ public class Movie implements Item{
      */
     private Movie(MovieBuilder b){
 	uID = b.uID;
+	key = b.key;
 	copies = b.copies;
 	copiesAvailable = b.copiesAvailable;
 	title = b.title;
-	description = b.description;
+	description = b.description != null ? b.description.intern() : null; //Imports repeat descriptions; the JVM drops interned strings nothing uses
 	subjects = b.subjects;
 	genre = b.genre;
 	directorID = b.directorID;
@@ -137,12 +171,13 @@ public class Movie implements Item{
      * @param newCopiesAvailable the new number of copies available.
      */
     private Movie(Movie b, int newCopiesAvailable){
-	uID = b.getUID();
+	uID = b.uID;
+	key = b.key;
         copies = b.getCopies();
 	copiesAvailable = newCopiesAvailable;
 	title = b.getTitle();
-	description = b.getDescription();
-	subjects = b.getSubjects();
+	description = b.description;
+	subjects = b.subjects; //Immutable, so shared rather than copied
 	genre = b.getGenre();
 	directorID = b.getDirectorID();
         duration = b.getDuration();
@@ -155,15 +190,37 @@ public class Movie implements Item{
     }
 
     public Item checkOut() throws CheckOutException{
-	if(isAvailable())
-	    return new Movie(this, copiesAvailable - 1);
+	Item i = tryCheckOut();
+	if(i != null)
+	    return i;
         throw new CheckOutException("Could not check out " + title  + "!");
     }
 
     public Item returnItem() throws ReturnException{
+	Item i = tryReturnItem();
+	if(i != null)
+	    return i;
+	throw new ReturnException("Could not return " + title  + "!");
+    }
+
+    public Item tryCheckOut(){
 	if(isAvailable())
+	    return new Movie(this, copiesAvailable - 1);
+	return null;
+    }
+
+    public Item tryReturnItem(){
+	if(copiesAvailable < copies)
 	    return new Movie(this, copiesAvailable + 1);
-        throw new ReturnException("Could not return " + title  + "!");
+	return null;
+    }
+
+    public Item withAvailableCopies(int copiesAvailable){
+	if(copiesAvailable < 0 || copiesAvailable > copies)
+	    throw new IllegalArgumentException(copiesAvailable + " copies of " + title + " cannot be available");
+	if(copiesAvailable == this.copiesAvailable)
+	    return this;
+	return new Movie(this, copiesAvailable);
     }
 
     
@@ -171,10 +228,26 @@ public class Movie implements Item{
 	return new ArrayList<String>(subjects);
     }
 
+    public List<String> getSubjectList(){
+	return subjects;
+    }
+
+    public int getSubjectCount(){
+	return subjects.size();
+    }
+
+    public String getSubject(int index){
+	return subjects.get(index);
+    }
+
     public int getUID(){
 	return uID;
     }
 
+    public long getKey(){
+	return key;
+    }
+
     public String getDescription(){
 	return description;
     }
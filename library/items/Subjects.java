@@ -0,0 +1,125 @@
+package library.items;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+/**
+ * An immutable list of an Item's subjects, stored as codes into a table shared by the whole Library.
+ * <p>
+ * Catalogues use a small vocabulary of subjects over and over ("History", "Fiction", ...), so each subject string is kept once, in the table, and a list holds only an int per subject. Equal lists are themselves shared: of returns the same Subjects for the same subjects in the same order, so most items hold no subject data of their own at all.
+ * <p>
+ * Items share their Subjects with the copies made when they are checked out and returned, and get and the list view allocate nothing. The table only grows, which suits a vocabulary like this one; it is not meant for arbitrary text such as descriptions.
+ */
+public final class Subjects extends AbstractList<String> implements RandomAccess{
+    private static final ConcurrentHashMap<String, Integer> codes = new ConcurrentHashMap<>();
+    private static volatile String[] names = new String[256];
+    private static int count = 0; //guarded by Subjects.class
+    private static final int NULL = -1;
+    private static final ConcurrentHashMap<Subjects, Subjects> lists = new ConcurrentHashMap<>();
+
+    /**
+     * The empty list.
+     */
+    public static final Subjects NONE = new Subjects(new int[0]);
+
+    private final int[] ids;
+    private final int hash;
+
+    private Subjects(int[] ids){
+	this.ids = ids;
+	int h = 1; //As List.hashCode, so a Subjects can be compared with other lists
+	for(int id : ids)
+	    h = 31 * h + (id == NULL ? 0 : names[id].hashCode());
+	this.hash = h;
+    }
+
+    /**
+     * Gets the code of a string, adding it to the table if it is new.
+     * @param s The string; may be null.
+     * @return the code, the same for every equal string.
+     */
+    public static int code(String s){
+	if(s == null)
+	    return NULL;
+	Integer c = codes.get(s);
+	if(c != null)
+	    return c;
+	synchronized(Subjects.class){
+	    c = codes.get(s);
+	    if(c != null)
+		return c;
+	    if(count == names.length)
+		names = Arrays.copyOf(names, count * 2);
+	    names[count] = s;
+	    codes.put(s, count); //Published after the name, so a thread which sees the code sees the name
+	    return count++;
+	}
+    }
+
+    /**
+     * Gets the string with a given code.
+     * @param code A code given by the code method.
+     * @return the string.
+     */
+    public static String name(int code){
+	return code == NULL ? null : names[code];
+    }
+
+    /**
+     * Gets the list of the given subjects.
+     * @param subjects The subjects, in order.
+     * @return an immutable list, the same object for every equal list.
+     */
+    public static Subjects of(String... subjects){
+	return of(Arrays.asList(subjects));
+    }
+
+    /**
+     * Gets the list of the given subjects.
+     * @param subjects The subjects, in order.
+     * @return an immutable list, the same object for every equal list.
+     */
+    public static Subjects of(Collection<String> subjects){
+	if(subjects.isEmpty())
+	    return NONE;
+	int[] ids = new int[subjects.size()];
+	int i = 0;
+	for(String s : subjects)
+	    ids[i++] = code(s);
+	Subjects list = new Subjects(ids);
+	Subjects shared = lists.putIfAbsent(list, list);
+	return shared != null ? shared : list;
+    }
+
+    @Override
+    public String get(int index){
+	return name(ids[index]);
+    }
+
+    /**
+     * Gets the code of a subject.
+     * @param index Position of the subject, between 0 and size() - 1.
+     * @return the subject's code (see name).
+     */
+    public int getCode(int index){
+	return ids[index];
+    }
+
+    @Override
+    public int size(){
+	return ids.length;
+    }
+
+    @Override
+    public boolean equals(Object o){
+	if(o instanceof Subjects)
+	    return Arrays.equals(ids, ((Subjects)o).ids);
+	return super.equals(o);
+    }
+
+    @Override
+    public int hashCode(){
+	return hash;
+    }
+}
@@ -1,10 +1,12 @@
 package library.people;
+import library.structures.Fingerprint;
 /**
  * Used to represent Artists who have works in the Library catalogue.
  */
 public class Artist extends Person{
     private static final long serialVersionUID = 64398177;
     private final int artistID;
+    private final long key;
     
     /**
      * Constructs an Artist object. Sets the artist id to the hash code of the first name plus the last name with a space inbetween.
@@ -14,6 +16,19 @@ public class Artist extends Person{
     public Artist(String firstName, String lastName){
 	super(firstName, lastName);
         this.artistID = (firstName+" "+lastName).hashCode();
+	this.key = Fingerprint.of(firstName+" "+lastName);
+    }
+
+    /**
+     * Constructs an Artist object with an explicit 64-bit id, for artists whose names are shared or whose ids come from another catalogue. Sets the artist id to Long.hashCode(id), so artists given different ids below 2^32 never share an artist id.
+     *@param firstName The artist's first name.
+     *@param lastName The artist's last name.
+     *@param id The artist's 64-bit id.
+     */
+    public Artist(String firstName, String lastName, long id){
+	super(firstName, lastName);
+	this.artistID = Long.hashCode(id);
+	this.key = id;
     }
 
     /**
@@ -24,6 +39,14 @@ public class Artist extends Person{
 	return artistID;
     }
 
+    /**
+     * Gets the key: the explicit id the artist was constructed with, or else a 64-bit fingerprint of the name.
+     *@return Returns the key.
+     */
+    public long getKey(){
+	return key;
+    }
+
     @Override
     public String toString(){
 	return super.getName();
@@ -0,0 +1,66 @@
+package library.people;
+import library.storage.StorageKey;
+import java.util.Objects;
+/**
+ * Saves and restores the credentials of Staff and Members. Only the storage code holds the StorageKey these methods require, so other callers can neither read passkey hashes nor build a Staff or Member with a chosen one.
+ */
+public final class Credentials{
+    private Credentials(){}
+
+    /**
+     * Gets the hashed passkey of a staff member; the passkey itself is never stored.
+     *@param staff The staff member.
+     *@param key Proves the caller is the storage code.
+     *@return the passkey hash.
+     *@throws NullPointerException if key is null.
+     */
+    public static int passkeyHash(Staff staff, StorageKey key){
+	Objects.requireNonNull(key);
+	return staff.passkeyHash();
+    }
+
+    /**
+     * Gets the hashed passkey of a member; the passkey itself is never stored.
+     *@param member The member.
+     *@param key Proves the caller is the storage code.
+     *@return the passkey hash.
+     *@throws NullPointerException if key is null.
+     */
+    public static int passkeyHash(Member member, StorageKey key){
+	Objects.requireNonNull(key);
+	return member.passkeyHash();
+    }
+
+    /**
+     * Recreates a Staff object from its saved form.
+     *@param firstName The staff member's first name.
+     *@param lastName The staff member's last name.
+     *@param staffID The staffID.
+     *@param staffKey The staff member's key (see Staff.getKey).
+     *@param passkey The hashed passkey.
+     *@param key Proves the caller is the storage code.
+     *@return the restored Staff.
+     *@throws NullPointerException if key is null.
+     */
+    public static Staff restoreStaff(String firstName, String lastName, int staffID, long staffKey, int passkey, StorageKey key){
+	Objects.requireNonNull(key);
+	return Staff.restore(firstName, lastName, staffID, staffKey, passkey);
+    }
+
+    /**
+     * Recreates a Member object from its saved form.
+     *@param firstName The member's first name.
+     *@param lastName The member's last name.
+     *@param memberID The memberID.
+     *@param memberKey The member's key (see Member.getKey).
+     *@param passkey The hashed passkey.
+     *@param checkedOut The list of checked out item unique ids.
+     *@param key Proves the caller is the storage code.
+     *@return the restored Member.
+     *@throws NullPointerException if key is null.
+     */
+    public static Member restoreMember(String firstName, String lastName, int memberID, long memberKey, int passkey, int[] checkedOut, StorageKey key){
+	Objects.requireNonNull(key);
+	return Member.restore(firstName, lastName, memberID, memberKey, passkey, checkedOut);
+    }
+}
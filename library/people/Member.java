@@ -1,4 +1,5 @@
 package library.people;
+import library.structures.Fingerprint;
 import library.exceptions.ReturnException;
 import java.util.Arrays;
 /**
@@ -7,6 +8,7 @@ import java.util.Arrays;
 public class Member extends Person{
     private static final long serialVersionUID = 64398177;
     private final int memberID;
+    private final long key;
     private final int passkey;
     private final int[] checkedOut;
 
@@ -20,6 +22,22 @@ public class Member extends Person{
     public Member(String firstName, String lastName, String memberID, String passkey){
 	super(firstName, lastName);
         this.memberID = memberID.hashCode();
+	this.key = Fingerprint.of(memberID);
+	this.passkey = passkey.hashCode();
+	this.checkedOut = new int[0];
+    }
+
+    /**
+     * Constructs a Member object with an explicit 64-bit id, such as a card number. Sets the memberID to Long.hashCode(id), so members given different ids below 2^32 never share a memberID.
+     *@param firstName The member's first name.
+     *@param lastName The member's last name.
+     *@param memberID The member's 64-bit id.
+     *@param passkey String used to set the passkey.
+     */
+    public Member(String firstName, String lastName, long memberID, String passkey){
+	super(firstName, lastName);
+	this.memberID = Long.hashCode(memberID);
+	this.key = memberID;
 	this.passkey = passkey.hashCode();
 	this.checkedOut = new int[0];
     }
@@ -29,16 +47,40 @@ public class Member extends Person{
      *@param firstName The member's first name. 
      *@param lastName The member's last name.
      *@param memberID The memberID.
+     *@param key The key.
      *@param passkey The passkey.
      *@param checkedOut The list of checked out item unique ids.
      */
-    private Member(String firstName, String lastName, int memberID, int passkey, int[] checkedOut){
+    private Member(String firstName, String lastName, int memberID, long key, int passkey, int[] checkedOut){
 	super(firstName, lastName);
         this.memberID = memberID;
+	this.key = key;
 	this.passkey = passkey;
 	this.checkedOut = checkedOut.clone();
     }
 
+    /**
+     * Recreates a Member object from its saved form (see Credentials).
+     *@param firstName The member's first name.
+     *@param lastName The member's last name.
+     *@param memberID The memberID.
+     *@param key The key.
+     *@param passkey The hashed passkey.
+     *@param checkedOut The list of checked out item unique ids.
+     *@return the restored Member.
+     */
+    static Member restore(String firstName, String lastName, int memberID, long key, int passkey, int[] checkedOut){
+	return new Member(firstName, lastName, memberID, key, passkey, checkedOut);
+    }
+
+    /**
+     * Gets the hashed passkey (see Credentials).
+     * @return the passkey hash.
+     */
+    int passkeyHash(){
+	return passkey;
+    }
+
     /**
      * Get checked out unique ids.
      *@return returns array of unique ids of checked out items.
@@ -66,7 +108,7 @@ public class Member extends Person{
 	    updatedCheckedOut = Arrays.copyOf(checkedOut, checkedOut.length+1);
 	    updatedCheckedOut[updatedCheckedOut.length-1] = uID;
 	}
-        return new Member(this.firstName, this.lastName, this.memberID, this.passkey, updatedCheckedOut.clone());
+	return new Member(this.firstName, this.lastName, this.memberID, this.key, this.passkey, updatedCheckedOut.clone());
     }
 
     /**
@@ -75,8 +117,18 @@ public class Member extends Person{
      * @throws ReturnException If the item cannot be returned (i.e. was never owned by the Member to begin with).
      */
     public Member returnItem(int uID) throws ReturnException{
+	Member m = tryReturnItem(uID);
+	if(m == null)
+	    throw new ReturnException(memberID + " could not return " + uID);
+	return m;
+    }
+
+    /**
+     * Returns item to the library without throwing.
+     * @return new copy of Member with the item returned and removed from the checked out list; if the Member does not have the item, returns null.
+     */
+    public Member tryReturnItem(int uID){
 	int[] updatedCheckedOut = null;
-	boolean foundEmpty = false;
 	int i = 0;
 	for(i = 0; i < checkedOut.length; i++){
 	    if(checkedOut[i] == uID){
@@ -84,10 +136,10 @@ public class Member extends Person{
 	    }
 	}
 	if(i == checkedOut.length)
-	    throw new ReturnException(memberID + " could not return " + uID);
+	    return null;
 	updatedCheckedOut = checkedOut.clone();
 	updatedCheckedOut[i] = -1;
-        return new Member(this.firstName, this.lastName, this.memberID, this.passkey,  updatedCheckedOut.clone());
+	return new Member(this.firstName, this.lastName, this.memberID, this.key, this.passkey,  updatedCheckedOut);
     }
 
     /**
@@ -98,6 +150,14 @@ public class Member extends Person{
 	return memberID;
     }
 
+    /**
+     * Gets the key: the explicit id the member was constructed with, or else a 64-bit fingerprint of the memberID string.
+     *@return the key is returned.
+     */
+    public long getKey(){
+	return key;
+    }
+
     /**
      * Checks equality between the Staff member and another object. Two staff members are considered equal if their staff IDs and their passkeys are identical.
      * @return if the two Staff members are equal return true.
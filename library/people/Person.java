@@ -14,6 +14,22 @@ public abstract class Person implements Serializable{
 	return lastName + ", " + firstName;
     }
 
+    /**
+     * Gets the person's first name.
+     *@return returns the first name.
+     */
+    public String getFirstName(){
+	return firstName;
+    }
+
+    /**
+     * Gets the person's last name.
+     *@return returns the last name.
+     */
+    public String getLastName(){
+	return lastName;
+    }
+
     public Person(String firstName, String lastName){
 	this.firstName = firstName;
 	this.lastName = lastName;
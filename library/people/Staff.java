@@ -1,4 +1,5 @@
 package library.people;
+import library.structures.Fingerprint;
 import java.util.Arrays;
 /**
  * Used to represent staff who work for the Library.
@@ -6,6 +7,7 @@ import java.util.Arrays;
 public class Staff extends Person{
     private static final long serialVersionUID = 64398177;
     private final int staffID;
+    private final long key;
     private final int passkey;
     
     /**
@@ -18,9 +20,60 @@ public class Staff extends Person{
     public Staff(String firstName, String lastName, String staffID, String passkey){
 	super(firstName, lastName);
         this.staffID = staffID.hashCode();
+	this.key = Fingerprint.of(staffID);
 	this.passkey = passkey.hashCode();
     }
 
+    /**
+     * Constructs a Staff object with an explicit 64-bit id, such as an employee number. Sets the staffID to Long.hashCode(id), so staff given different ids below 2^32 never share a staffID.
+     *@param firstName The staff member's first name.
+     *@param lastName The staff member's last name.
+     *@param staffID The staff member's 64-bit id.
+     *@param passkey String used to set the passkey.
+     */
+    public Staff(String firstName, String lastName, long staffID, String passkey){
+	super(firstName, lastName);
+	this.staffID = Long.hashCode(staffID);
+	this.key = staffID;
+	this.passkey = passkey.hashCode();
+    }
+
+    /**
+     * Constructs a Staff object from an already hashed ID and passkey.
+     *@param firstName The staff member's first name.
+     *@param lastName The staff member's last name.
+     *@param staffID The staffID.
+     *@param key The key.
+     *@param passkey The passkey.
+     */
+    private Staff(String firstName, String lastName, int staffID, long key, int passkey){
+	super(firstName, lastName);
+	this.staffID = staffID;
+	this.key = key;
+	this.passkey = passkey;
+    }
+
+    /**
+     * Recreates a Staff object from its saved form (see Credentials).
+     *@param firstName The staff member's first name.
+     *@param lastName The staff member's last name.
+     *@param staffID The staffID.
+     *@param key The key.
+     *@param passkey The hashed passkey.
+     *@return the restored Staff.
+     */
+    static Staff restore(String firstName, String lastName, int staffID, long key, int passkey){
+	return new Staff(firstName, lastName, staffID, key, passkey);
+    }
+
+    /**
+     * Gets the hashed passkey (see Credentials).
+     * @return the passkey hash.
+     */
+    int passkeyHash(){
+	return passkey;
+    }
+
     /**
      * Gets the staff id.
      * @return Staff ID is returned.
@@ -29,6 +82,14 @@ public class Staff extends Person{
 	return staffID;
     }
 
+    /**
+     * Gets the key: the explicit id the staff member was constructed with, or else a 64-bit fingerprint of the staffID string.
+     * @return the key is returned.
+     */
+    public long getKey(){
+	return key;
+    }
+
     /**
      * Checks equality between the Staff member and another object. Two staff members are considered equal if their staff IDs and their passkeys are identical.
      * @return if the two Staff members are equal return true.
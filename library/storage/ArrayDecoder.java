@@ -0,0 +1,38 @@
+package library.storage;
+import java.io.EOFException;
+/**
+ * A Decoder which reads from a byte array.
+ */
+class ArrayDecoder extends Decoder{
+    private final byte[] buf;
+    private int pos;
+    private final int end;
+
+    ArrayDecoder(byte[] buf, int off, int len){
+	this.buf = buf;
+	this.pos = off;
+	this.end = off + len;
+    }
+
+    @Override
+    int readByte() throws EOFException{
+	if(pos >= end)
+	    throw new EOFException();
+	return buf[pos++] & 0xFF;
+    }
+
+    @Override
+    void readBytes(byte[] b, int off, int len) throws EOFException{
+	if(pos + len > end)
+	    throw new EOFException();
+	System.arraycopy(buf, pos, b, off, len);
+	pos += len;
+    }
+
+    long readLong() throws EOFException{
+	long v = 0;
+	for(int i = 0; i < 8; i++)
+	    v = (v << 8) | readByte();
+	return v;
+    }
+}
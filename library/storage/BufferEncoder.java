@@ -0,0 +1,80 @@
+package library.storage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+/**
+ * An Encoder which writes to a growable byte array.
+ */
+class BufferEncoder extends Encoder{
+    private byte[] buf;
+    private int size = 0;
+
+    BufferEncoder(int capacity){
+	buf = new byte[capacity];
+    }
+
+    private void grow(int n){
+	if(size + n > buf.length)
+	    buf = Arrays.copyOf(buf, Math.max(size + n, buf.length * 2));
+    }
+
+    @Override
+    void writeByte(int b){
+	grow(1);
+	buf[size++] = (byte) b;
+    }
+
+    @Override
+    void writeBytes(byte[] b, int off, int len){
+	grow(len);
+	System.arraycopy(b, off, buf, size, len);
+	size += len;
+    }
+
+    /**
+     * Overwrites four bytes at the given position with a big-endian int.
+     */
+    void putInt(int pos, int v){
+	buf[pos] = (byte) (v >>> 24);
+	buf[pos + 1] = (byte) (v >>> 16);
+	buf[pos + 2] = (byte) (v >>> 8);
+	buf[pos + 3] = (byte) v;
+    }
+
+    void writeInt(int v){
+	grow(4);
+	putInt(size, v);
+	size += 4;
+    }
+
+    void writeLong(long v){
+	writeInt((int) (v >>> 32));
+	writeInt((int) v);
+    }
+
+    byte[] array(){
+	return buf;
+    }
+
+    int size(){
+	return size;
+    }
+
+    void reset(){
+	size = 0;
+    }
+
+    /**
+     * Drops everything written after the given size.
+     */
+    void truncate(int size){
+	this.size = size;
+    }
+
+    void writeTo(WritableByteChannel channel) throws IOException{
+	ByteBuffer b = ByteBuffer.wrap(buf, 0, size);
+	while(b.hasRemaining())
+	    channel.write(b);
+    }
+}
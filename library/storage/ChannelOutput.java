@@ -0,0 +1,45 @@
+package library.storage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+/**
+ * An Encoder which writes to a channel through a direct buffer.
+ */
+class ChannelOutput extends Encoder{
+    private final WritableByteChannel channel;
+    private final ByteBuffer buf;
+
+    ChannelOutput(WritableByteChannel channel, int bufferSize){
+	this.channel = channel;
+	this.buf = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    @Override
+    void writeByte(int b) throws IOException{
+	if(!buf.hasRemaining())
+	    flush();
+	buf.put((byte) b);
+    }
+
+    @Override
+    void writeBytes(byte[] b, int off, int len) throws IOException{
+	while(len > 0){
+	    if(!buf.hasRemaining())
+		flush();
+	    int n = Math.min(len, buf.remaining());
+	    buf.put(b, off, n);
+	    off += n;
+	    len -= n;
+	}
+    }
+
+    /**
+     * Writes everything buffered so far to the channel.
+     */
+    void flush() throws IOException{
+	buf.flip();
+	while(buf.hasRemaining())
+	    channel.write(buf);
+	buf.clear();
+    }
+}
@@ -0,0 +1,47 @@
+package library.storage;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+/**
+ * Reads the encodings written by Encoder.
+ */
+abstract class Decoder{
+    private byte[] scratch = new byte[64];
+
+    abstract int readByte() throws IOException;
+
+    abstract void readBytes(byte[] b, int off, int len) throws IOException;
+
+    long readUVarLong() throws IOException{
+	long v = 0;
+	for(int shift = 0; shift < 64; shift += 7){
+	    int b = readByte();
+	    v |= (long) (b & 0x7F) << shift;
+	    if((b & 0x80) == 0)
+		return v;
+	}
+	throw new IOException("Malformed varint");
+    }
+
+    int readUVarInt() throws IOException{
+	long v = readUVarLong();
+	if((v >>> 32) != 0)
+	    throw new IOException("Malformed varint");
+	return (int) v;
+    }
+
+    int readVarInt() throws IOException{
+	int v = readUVarInt();
+	return (v >>> 1) ^ -(v & 1);
+    }
+
+    String readString() throws IOException{
+	int len = readUVarInt();
+	if(len == 0)
+	    return null;
+	len--;
+	if(len > scratch.length)
+	    scratch = new byte[Math.max(len, scratch.length * 2)];
+	readBytes(scratch, 0, len);
+	return new String(scratch, 0, len, StandardCharsets.UTF_8);
+    }
+}
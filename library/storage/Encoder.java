@@ -0,0 +1,46 @@
+package library.storage;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+/**
+ * Writes the primitive encodings shared by snapshots and the journal: LEB128 varints, zigzag signed ints and length-prefixed UTF-8 strings.
+ */
+abstract class Encoder{
+    abstract void writeByte(int b) throws IOException;
+
+    abstract void writeBytes(byte[] b, int off, int len) throws IOException;
+
+    /**
+     * Writes an unsigned varint (7 bits per byte, low bits first).
+     */
+    void writeUVarLong(long v) throws IOException{
+	while((v & ~0x7FL) != 0){
+	    writeByte((int) (v & 0x7F) | 0x80);
+	    v >>>= 7;
+	}
+	writeByte((int) v);
+    }
+
+    void writeUVarInt(int v) throws IOException{
+	writeUVarLong(v & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Writes a signed int as a zigzag varint, so small negative numbers stay short.
+     */
+    void writeVarInt(int v) throws IOException{
+	writeUVarInt((v << 1) ^ (v >> 31));
+    }
+
+    /**
+     * Writes a string (or null) inline as its UTF-8 length plus one, followed by the bytes.
+     */
+    void writeString(String s) throws IOException{
+	if(s == null){
+	    writeUVarInt(0);
+	    return;
+	}
+	byte[] b = s.getBytes(StandardCharsets.UTF_8);
+	writeUVarInt(b.length + 1);
+	writeBytes(b, 0, b.length);
+    }
+}
@@ -0,0 +1,536 @@
+package library.storage;
+import library.items.Item;
+import library.people.*;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+/**
+ * An append-only journal of Library mutations.
+ * <p>
+ * Appending only encodes the record into an in-memory buffer; a background thread writes whatever has accumulated with one channel write (group commit) and then forces it to disk according to the Fsync policy. Callers never wait for the disk unless they ask to with awaitDurable or sync.
+ * <p>
+ * Each record is framed as: length, CRC32C, sequence number, type, body. A batch of loans appended with appendLoans is a single record, so it is replayed whole or not at all. Replay stops at the first incomplete or corrupt record, which is what a crash in the middle of a write leaves behind; opening the journal cuts such a tail off.
+ */
+public final class Journal implements AutoCloseable{
+    /**
+     * Enum for when the journal is forced to disk.
+     */
+    public static enum Fsync{
+	/** Never force; the operating system writes the data back when it chooses. */
+	NEVER,
+	/** Force at most once per interval, so at most one interval of mutations can be lost. */
+	INTERVAL,
+	/** Force after every group of records is written. */
+	EVERY_COMMIT;
+    }
+
+    /**
+     * Receives the mutations read back from a journal.
+     */
+    public interface Replayer{
+	void addItem(Item item);
+	void addStaff(Staff staff);
+	void addMember(Member member);
+	void addArtist(Artist artist);
+	void checkOut(int memberID, int uID);
+	void returnItem(int memberID, int uID);
+    }
+
+    private static final int MAGIC = 0x4C4A4E4C; //"LJNL"
+    private static final int VERSION = 3; //2 added LOANS, 3 the KEYED records; older journals are still read
+    private static final int HEADER = 16; //magic, version, sequence number the journal starts after
+    private static final int ADD_ITEM = 1, ADD_STAFF = 2, ADD_MEMBER = 3, ADD_ARTIST = 4, CHECK_OUT = 5, RETURN = 6, LOANS = 7;
+    //Additions which end with the 64-bit key (see Records); the ADD_ records before them do not have it
+    private static final int KEYED_ITEM = 8, KEYED_STAFF = 9, KEYED_MEMBER = 10, KEYED_ARTIST = 11;
+
+    private final FileChannel channel;
+    private final Fsync policy;
+    private final long intervalNanos;
+    private final Thread flusher;
+    private final CRC32C crc = new CRC32C();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition hasData = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+    private BufferEncoder pending = new BufferEncoder(1 << 16);
+    private BufferEncoder spare = new BufferEncoder(1 << 16);
+    private long nextSeq;
+    private long writtenSeq;
+    private long durableSeq;
+    private boolean syncRequested = false;
+    private boolean closed = false;
+    private IOException failure = null;
+
+    private Journal(FileChannel channel, long lastSeq, Fsync policy, long intervalMillis){
+	this.channel = channel;
+	this.policy = policy;
+	this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, intervalMillis));
+	this.nextSeq = lastSeq + 1;
+	this.writtenSeq = lastSeq;
+	this.durableSeq = lastSeq;
+	this.flusher = new Thread(this::flushLoop, "library-journal");
+	flusher.setDaemon(true);
+	flusher.start();
+    }
+
+    /**
+     * Opens (or creates) a journal for appending. A torn record at the end of the file is removed.
+     * @param path The journal file.
+     * @param policy When appended records are forced to disk.
+     * @param intervalMillis The interval used by Fsync.INTERVAL.
+     * @return the open Journal.
+     * @throws IOException if the file cannot be opened or is not a journal.
+     */
+    public static Journal open(Path path, Fsync policy, long intervalMillis) throws IOException{
+	return open(path, 0, policy, intervalMillis);
+    }
+
+    /**
+     * Opens (or creates) a journal for appending, numbering new records after both the journal's last record and afterSeq. A torn record at the end of the file is removed.
+     * @param path The journal file.
+     * @param afterSeq The last sequence number already used elsewhere, such as the one a snapshot holds; new records are numbered after it even if the journal is new or shorter.
+     * @param policy When appended records are forced to disk.
+     * @param intervalMillis The interval used by Fsync.INTERVAL.
+     * @return the open Journal.
+     * @throws IOException if the file cannot be opened or is not a journal.
+     */
+    public static Journal open(Path path, long afterSeq, Fsync policy, long intervalMillis) throws IOException{
+	FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+	try{
+	    long[] end = {HEADER, afterSeq}; //{valid length, last sequence}
+	    if(channel.size() == 0){
+		writeHeader(channel, afterSeq);
+	    }else{
+		end = scan(channel, Long.MAX_VALUE, null);
+		if(end[0] < channel.size())
+		    channel.truncate(end[0]);
+		end[1] = Math.max(end[1], afterSeq);
+	    }
+	    channel.position(end[0]);
+	    return new Journal(channel, end[1], policy, intervalMillis);
+	}catch(IOException | RuntimeException e){
+	    channel.close();
+	    throw e;
+	}
+    }
+
+    /**
+     * Reads the journal file and passes every record with a sequence number greater than afterSeq to the replayer.
+     * @param path The journal file.
+     * @param afterSeq Records up to and including this sequence number are skipped (e.g. because a snapshot already holds them).
+     * @param replayer Receives the records.
+     * @return the sequence number of the last valid record, or afterSeq if there were none after it.
+     * @throws IOException if the file cannot be read or is not a journal.
+     */
+    public static long replay(Path path, long afterSeq, Replayer replayer) throws IOException{
+	try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)){
+	    if(channel.size() == 0)
+		return afterSeq;
+	    return Math.max(afterSeq, scan(channel, afterSeq, replayer)[1]);
+	}
+    }
+
+    /**
+     * Walks the records in a journal.
+     * @return {end of the last valid record, sequence number of the last valid record}.
+     */
+    private static long[] scan(FileChannel channel, long afterSeq, Replayer replayer) throws IOException{
+	MappedInput in = new MappedInput(channel);
+	int version;
+	if(readInt(in) != MAGIC || (version = readInt(in)) < 1 || version > VERSION)
+	    throw new IOException("Not a library journal");
+	long lastSeq = ((long) readInt(in) << 32) | (readInt(in) & 0xFFFFFFFFL);
+	long end = in.position();
+	CRC32C crc = new CRC32C();
+	byte[] record = new byte[256];
+	try{
+	    while(true){
+		int len = readInt(in);
+		int sum = readInt(in);
+		if(len < 9 || len > (64 << 20))
+		    break;
+		if(len > record.length)
+		    record = new byte[len];
+		in.readBytes(record, 0, len);
+		crc.reset();
+		crc.update(record, 0, len);
+		if((int) crc.getValue() != sum)
+		    break;
+		ArrayDecoder d = new ArrayDecoder(record, 0, len);
+		long seq = d.readLong();
+		if(replayer != null && seq > afterSeq)
+		    apply(d, replayer);
+		lastSeq = seq;
+		end = in.position();
+	    }
+	}catch(EOFException e){
+	    //torn tail
+	}
+	return new long[]{end, lastSeq};
+    }
+
+    private static void writeHeader(FileChannel channel, long baseSeq) throws IOException{
+	ByteBuffer h = ByteBuffer.allocate(HEADER).putInt(MAGIC).putInt(VERSION).putLong(baseSeq).flip();
+	long pos = 0;
+	while(h.hasRemaining())
+	    pos += channel.write(h, pos);
+	channel.force(true);
+    }
+
+    private static int readInt(MappedInput in) throws IOException{
+	return (in.readByte() << 24) | (in.readByte() << 16) | (in.readByte() << 8) | in.readByte();
+    }
+
+    private static void apply(ArrayDecoder d, Replayer r) throws IOException{
+	int type = d.readByte();
+	switch(type){
+	    case ADD_ITEM, KEYED_ITEM -> r.addItem(Records.readItem(d, d.readVarInt(), type == KEYED_ITEM));
+	    case ADD_STAFF, KEYED_STAFF -> r.addStaff(Records.readStaff(d, d.readVarInt(), type == KEYED_STAFF));
+	    case ADD_MEMBER, KEYED_MEMBER -> r.addMember(Records.readMember(d, d.readVarInt(), type == KEYED_MEMBER));
+	    case ADD_ARTIST, KEYED_ARTIST -> r.addArtist(Records.readArtist(d, d.readVarInt(), type == KEYED_ARTIST));
+	    case CHECK_OUT -> r.checkOut(d.readVarInt(), d.readVarInt());
+	    case RETURN -> r.returnItem(d.readVarInt(), d.readVarInt());
+	    case LOANS -> {
+		for(int n = d.readVarInt(); n > 0; n--){
+		    boolean checkOut = d.readByte() == CHECK_OUT;
+		    int memberID = d.readVarInt(), uID = d.readVarInt();
+		    if(checkOut)
+			r.checkOut(memberID, uID);
+		    else
+			r.returnItem(memberID, uID);
+		}
+	    }
+	    default -> throw new IOException("Unknown journal record " + type);
+	}
+    }
+
+    /**
+     * Frames and queues a record. Must be called with the lock held; the body is written by the caller between begin and end.
+     * @return the position of the frame in the pending buffer.
+     */
+    private int begin(int type){
+	if(closed)
+	    throw new IllegalStateException("Journal is closed");
+	if(failure != null)
+	    throw new UncheckedIOException("Journal write failed", failure);
+	int start = pending.size();
+	pending.writeInt(0); //length, filled in by end
+	pending.writeInt(0); //checksum, filled in by end
+	pending.writeLong(nextSeq);
+	pending.writeByte(type);
+	return start;
+    }
+
+    private long end(int start){
+	int len = pending.size() - start - 8;
+	crc.reset();
+	crc.update(pending.array(), start + 8, len);
+	pending.putInt(start, len);
+	pending.putInt(start + 4, (int) crc.getValue());
+	hasData.signal();
+	return nextSeq++;
+    }
+
+    /**
+     * Appends an added Item.
+     * @param item The item.
+     * @return the record's sequence number.
+     */
+    public long appendAddItem(Item item){
+	lock.lock();
+	try{
+	    int start = begin(KEYED_ITEM);
+	    try{
+		pending.writeVarInt(item.getUID());
+		Records.writeItem(pending, item);
+		return end(start);
+	    }catch(IOException e){
+		pending.truncate(start);
+		throw new IllegalArgumentException(e.getMessage(), e); //Only thrown for Item types the journal cannot encode
+	    }
+	}finally{
+	    lock.unlock();
+	}
+    }
+
+    /**
+     * Appends an added Staff member.
+     * @param staff The staff member.
+     * @return the record's sequence number.
+     */
+    public long appendAddStaff(Staff staff){
+	lock.lock();
+	try{
+	    int start = begin(KEYED_STAFF);
+	    pending.writeVarInt(staff.getStaffID());
+	    Records.writeStaff(pending, staff);
+	    return end(start);
+	}catch(IOException e){
+	    throw new UncheckedIOException(e); //BufferEncoder never throws
+	}finally{
+	    lock.unlock();
+	}
+    }
+
+    /**
+     * Appends an added Member.
+     * @param member The member.
+     * @return the record's sequence number.
+     */
+    public long appendAddMember(Member member){
+	lock.lock();
+	try{
+	    int start = begin(KEYED_MEMBER);
+	    pending.writeVarInt(member.getMemberID());
+	    Records.writeMember(pending, member);
+	    return end(start);
+	}catch(IOException e){
+	    throw new UncheckedIOException(e);
+	}finally{
+	    lock.unlock();
+	}
+    }
+
+    /**
+     * Appends an added Artist.
+     * @param artist The artist.
+     * @return the record's sequence number.
+     */
+    public long appendAddArtist(Artist artist){
+	lock.lock();
+	try{
+	    int start = begin(KEYED_ARTIST);
+	    pending.writeVarInt(artist.getArtistID());
+	    Records.writeArtist(pending, artist);
+	    return end(start);
+	}catch(IOException e){
+	    throw new UncheckedIOException(e);
+	}finally{
+	    lock.unlock();
+	}
+    }
+
+    /**
+     * Appends a check out.
+     * @param memberID The member who received the copy.
+     * @param uID The item checked out.
+     * @return the record's sequence number.
+     */
+    public long appendCheckOut(int memberID, int uID){
+	return appendLoan(CHECK_OUT, memberID, uID);
+    }
+
+    /**
+     * Appends a return.
+     * @param memberID The member who returned the copy.
+     * @param uID The item returned.
+     * @return the record's sequence number.
+     */
+    public long appendReturn(int memberID, int uID){
+	return appendLoan(RETURN, memberID, uID);
+    }
+
+    private long appendLoan(int type, int memberID, int uID){
+	lock.lock();
+	try{
+	    int start = begin(type);
+	    pending.writeVarInt(memberID);
+	    pending.writeVarInt(uID);
+	    return end(start);
+	}catch(IOException e){
+	    throw new UncheckedIOException(e);
+	}finally{
+	    lock.unlock();
+	}
+    }
+
+    /**
+     * Appends a batch of check outs and returns as one record, so that after a crash either all of them are replayed or none are.
+     * @param count The number of loans.
+     * @param checkOuts For each loan, true for a check out and false for a return.
+     * @param memberIDs For each loan, the member.
+     * @param uIDs For each loan, the item.
+     * @return the record's sequence number.
+     */
+    public long appendLoans(int count, boolean[] checkOuts, int[] memberIDs, int[] uIDs){
+	lock.lock();
+	try{
+	    int start = begin(LOANS);
+	    pending.writeVarInt(count);
+	    for(int i = 0; i < count; i++){
+		pending.writeByte(checkOuts[i] ? CHECK_OUT : RETURN);
+		pending.writeVarInt(memberIDs[i]);
+		pending.writeVarInt(uIDs[i]);
+	    }
+	    return end(start);
+	}catch(IOException e){
+	    throw new UncheckedIOException(e);
+	}finally{
+	    lock.unlock();
+	}
+    }
+
+    /**
+     * Gets the sequence number of the last appended record.
+     * @return the sequence number, or 0 if nothing has ever been appended.
+     */
+    public long lastSequence(){
+	lock.lock();
+	try{
+	    return nextSeq - 1;
+	}finally{
+	    lock.unlock();
+	}
+    }
+
+    /**
+     * Waits until the record with the given sequence number has been forced to disk. With Fsync.NEVER this forces the journal.
+     * @param seq The sequence number.
+     * @throws IOException if the journal could not be written.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    public void awaitDurable(long seq) throws IOException, InterruptedException{
+	lock.lock();
+	try{
+	    if(policy == Fsync.NEVER)
+		syncRequested = true;
+	    hasData.signal();
+	    while(durableSeq < seq && failure == null && !closed)
+		flushed.await();
+	    if(failure != null)
+		throw failure;
+	}finally{
+	    lock.unlock();
+	}
+    }
+
+    /**
+     * Forces every record appended so far to disk.
+     * @throws IOException if the journal could not be written.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    public void sync() throws IOException, InterruptedException{
+	lock.lock();
+	try{
+	    syncRequested = true;
+	    awaitDurable(nextSeq - 1);
+	}finally{
+	    lock.unlock();
+	}
+    }
+
+    /**
+     * Discards every record once a snapshot holds them. Records appended afterwards continue the sequence.
+     * The caller must make sure no records are appended while this runs.
+     * @throws IOException if the journal could not be written.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    public void reset() throws IOException, InterruptedException{
+	lock.lock();
+	try{
+	    while(writtenSeq < nextSeq - 1 && failure == null)
+		flushed.await();
+	    if(failure != null)
+		throw failure;
+	    channel.truncate(HEADER);
+	    writeHeader(channel, writtenSeq);
+	    channel.position(HEADER);
+	    durableSeq = writtenSeq;
+	}finally{
+	    lock.unlock();
+	}
+    }
+
+    private void flushLoop(){
+	long lastForce = System.nanoTime();
+	long unforcedSeq = writtenSeq;
+	while(true){
+	    long upTo;
+	    boolean force;
+	    lock.lock();
+	    try{
+		while(pending.size() == 0 && !closed && !syncRequested){
+		    if(unforcedSeq > durableSeq && policy == Fsync.INTERVAL){
+			long wait = intervalNanos - (System.nanoTime() - lastForce);
+			if(wait <= 0)
+			    break;
+			hasData.awaitNanos(wait);
+		    }else{
+			hasData.await();
+		    }
+		}
+		if(closed && pending.size() == 0 && unforcedSeq <= durableSeq)
+		    return;
+		BufferEncoder b = pending;
+		pending = spare;
+		spare = b;
+		upTo = nextSeq - 1;
+		force = syncRequested || closed || policy == Fsync.EVERY_COMMIT
+		    || (policy == Fsync.INTERVAL && System.nanoTime() - lastForce >= intervalNanos);
+		syncRequested = false;
+	    }catch(InterruptedException e){
+		return;
+	    }finally{
+		lock.unlock();
+	    }
+	    IOException error = null;
+	    try{
+		spare.writeTo(channel);
+		spare.reset();
+		unforcedSeq = upTo;
+		if(force){
+		    channel.force(false);
+		    lastForce = System.nanoTime();
+		}
+	    }catch(IOException e){
+		error = e;
+	    }
+	    lock.lock();
+	    try{
+		if(error != null){
+		    failure = error;
+		}else{
+		    writtenSeq = upTo;
+		    if(force)
+			durableSeq = upTo;
+		}
+		flushed.signalAll();
+		if(error != null)
+		    return;
+	    }finally{
+		lock.unlock();
+	    }
+	}
+    }
+
+    /**
+     * Writes and forces everything appended so far, then closes the file.
+     * @throws IOException if the journal could not be written.
+     */
+    @Override
+    public void close() throws IOException{
+	lock.lock();
+	try{
+	    closed = true;
+	    hasData.signal();
+	}finally{
+	    lock.unlock();
+	}
+	try{
+	    flusher.join();
+	}catch(InterruptedException e){
+	    Thread.currentThread().interrupt();
+	}
+	channel.close();
+	if(failure != null)
+	    throw failure;
+    }
+}
@@ -0,0 +1,56 @@
+package library.storage;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+/**
+ * A Decoder which reads a file through memory-mapped windows, so files larger than a single mapping (2GB) can be read.
+ */
+class MappedInput extends Decoder{
+    private static final long WINDOW = 64L << 20;
+    private final FileChannel channel;
+    private final long size;
+    private long base = 0; //file offset of the current window
+    private MappedByteBuffer buf;
+
+    MappedInput(FileChannel channel) throws IOException{
+	this.channel = channel;
+	this.size = channel.size();
+	map(0);
+    }
+
+    private void map(long offset) throws IOException{
+	base = offset;
+	buf = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(WINDOW, size - offset));
+    }
+
+    /**
+     * Makes sure the next n bytes are in the current window.
+     */
+    private void ensure(int n) throws IOException{
+	if(buf.remaining() >= n)
+	    return;
+	long pos = position();
+	if(pos + n > size)
+	    throw new EOFException();
+	map(pos);
+	if(buf.remaining() < n)
+	    throw new IOException("Record larger than the mapping window");
+    }
+
+    long position(){
+	return base + buf.position();
+    }
+
+    @Override
+    int readByte() throws IOException{
+	ensure(1);
+	return buf.get() & 0xFF;
+    }
+
+    @Override
+    void readBytes(byte[] b, int off, int len) throws IOException{
+	ensure(len);
+	buf.get(b, off, len);
+    }
+}
@@ -0,0 +1,139 @@
+package library.storage;
+import library.items.*;
+import library.people.*;
+import java.io.IOException;
+/**
+ * Encodes and decodes the Library's records. The int IDs records are kept under are not written here; the caller writes them (delta encoded in snapshots) and passes them back when reading.
+ * <p>
+ * Each record ends with its 64-bit key (see Item.getKey and Member.getKey), unless it was written before keys were saved: the caller says which. Such an item's key is recomputed from its title; an older staff member, member or artist gets its int ID as its key, since the ID string it was built from is not saved.
+ */
+final class Records{
+    private static final int BOOK = 0, MOVIE = 1;
+    private static final Item.Genre[] GENRES = Item.Genre.values();
+
+    private Records(){}
+
+    static void writeItem(Encoder out, Item item) throws IOException{
+	switch(item){
+	    case Book b -> {
+		out.writeByte(BOOK);
+		writeItemFields(out, item);
+		out.writeVarInt(b.getPageCount());
+	    }
+	    case Movie m -> {
+		out.writeByte(MOVIE);
+		writeItemFields(out, item);
+		out.writeVarInt(m.getDuration());
+	    }
+	    default -> throw new IOException("Cannot save " + item.getClass().getName());
+	}
+	out.writeUVarLong(item.getKey());
+    }
+
+    private static void writeItemFields(Encoder out, Item item) throws IOException{
+	out.writeString(item.getTitle());
+	out.writeString(item.getDescription());
+	out.writeByte(item.getGenre() == null ? 0 : item.getGenre().ordinal() + 1);
+	out.writeVarInt(item.getArtistID());
+	out.writeVarInt(item.getCopies());
+	out.writeVarInt(item.getAvailableCopies());
+	int n = item.getSubjectCount();
+	out.writeUVarInt(n);
+	for(int i = 0; i < n; i++)
+	    out.writeString(item.getSubject(i));
+    }
+
+    static Item readItem(Decoder in, int uID, boolean keyed) throws IOException{
+	int kind = in.readByte();
+	if(kind != BOOK && kind != MOVIE)
+	    throw new IOException("Unknown item kind " + kind);
+	String title = in.readString();
+	String description = in.readString();
+	int genreSlot = in.readByte();
+	if(genreSlot > GENRES.length)
+	    throw new IOException("Unknown genre " + genreSlot);
+	Item.Genre genre = genreSlot == 0 ? null : GENRES[genreSlot - 1];
+	int artistID = in.readVarInt();
+	int copies = in.readVarInt();
+	int available = in.readVarInt();
+	String[] subjects = new String[in.readUVarInt()];
+	for(int i = 0; i < subjects.length; i++)
+	    subjects[i] = in.readString();
+	int extra = in.readVarInt();
+	long key = keyed ? in.readUVarLong() : 0;
+	Item item;
+	if(kind == BOOK){
+	    Book.BookBuilder b = new Book.BookBuilder(title).setCopies(copies).setAvailableCopies(available).setDescription(description)
+		.setSubjects(subjects).setGenre(genre).setAuthorID(artistID).setPages(extra);
+	    item = b.build();
+	    if(keyed && (item.getKey() != key || item.getUID() != uID)) //Built with an explicit id
+		item = b.setID(key).build();
+	}else{
+	    Movie.MovieBuilder b = new Movie.MovieBuilder(title).setCopies(copies).setAvailableCopies(available).setDescription(description)
+		.setSubjects(subjects).setGenre(genre).setDirectorID(artistID).setDuration(extra);
+	    item = b.build();
+	    if(keyed && (item.getKey() != key || item.getUID() != uID))
+		item = b.setID(key).build();
+	}
+	if(item.getUID() != uID)
+	    throw new IOException(String.format("Item 0x%x does not match its title or id", uID));
+	return item;
+    }
+
+    static void writeStaff(Encoder out, Staff s) throws IOException{
+	out.writeString(s.getFirstName());
+	out.writeString(s.getLastName());
+	out.writeVarInt(Credentials.passkeyHash(s, StorageKey.KEY));
+	out.writeUVarLong(s.getKey());
+    }
+
+    static Staff readStaff(Decoder in, int staffID, boolean keyed) throws IOException{
+	String firstName = in.readString();
+	String lastName = in.readString();
+	int passkey = in.readVarInt();
+	long key = keyed ? in.readUVarLong() : staffID;
+	return Credentials.restoreStaff(firstName, lastName, staffID, key, passkey, StorageKey.KEY);
+    }
+
+    static void writeMember(Encoder out, Member m) throws IOException{
+	out.writeString(m.getFirstName());
+	out.writeString(m.getLastName());
+	out.writeVarInt(Credentials.passkeyHash(m, StorageKey.KEY));
+	int[] checkedOut = m.getCheckedOut();
+	out.writeUVarInt(checkedOut.length);
+	for(int uid : checkedOut)
+	    out.writeVarInt(uid);
+	out.writeUVarLong(m.getKey());
+    }
+
+    static Member readMember(Decoder in, int memberID, boolean keyed) throws IOException{
+	String firstName = in.readString();
+	String lastName = in.readString();
+	int passkey = in.readVarInt();
+	int[] checkedOut = new int[in.readUVarInt()];
+	for(int i = 0; i < checkedOut.length; i++)
+	    checkedOut[i] = in.readVarInt();
+	long key = keyed ? in.readUVarLong() : memberID;
+	return Credentials.restoreMember(firstName, lastName, memberID, key, passkey, checkedOut, StorageKey.KEY);
+    }
+
+    static void writeArtist(Encoder out, Artist a) throws IOException{
+	out.writeString(a.getFirstName());
+	out.writeString(a.getLastName());
+	out.writeUVarLong(a.getKey());
+    }
+
+    static Artist readArtist(Decoder in, int artistID, boolean keyed) throws IOException{
+	String firstName = in.readString();
+	String lastName = in.readString();
+	Artist a = new Artist(firstName, lastName);
+	if(keyed){
+	    long key = in.readUVarLong();
+	    if(a.getKey() != key)
+		a = new Artist(firstName, lastName, key);
+	}
+	if(a.getArtistID() != artistID)
+	    throw new IOException(String.format("Artist 0x%x does not match its name", artistID));
+	return a;
+    }
+}
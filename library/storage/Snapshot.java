@@ -0,0 +1,244 @@
+package library.storage;
+import library.items.*;
+import library.people.*;
+import library.structures.OrderedIndex;
+import library.structures.SkipList;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.function.ToIntFunction;
+/**
+ * A saved copy of the Library's four collections.
+ * <p>
+ * The format is: a magic number and format version; the sequence number of the last journal record the snapshot includes (since version 2); a table of every distinct string (names, titles, descriptions, subjects); then the staff, members, artists and items, each as a count followed by records in key order; since version 3 each record ends with its 64-bit key (see Records). Keys are stored as varint deltas from the previous key and strings as varint indexes into the table. Because keys are sorted, reading builds each SkipList in linear time (see SkipList.SortedBuilder).
+ * <p>
+ * Snapshots are written through a FileChannel to a temporary file which replaces the target once it is on disk, and read through memory-mapped windows.
+ */
+public final class Snapshot{
+    private static final int MAGIC = 0x4C534E50; //"LSNP"
+    /** The format version written by this class. */
+    public static final int FORMAT_VERSION = 3;
+
+    private final SkipList<Integer, Staff> staff;
+    private final SkipList<Integer, Member> members;
+    private final SkipList<Integer, Artist> artists;
+    private final SkipList<Integer, Item> catalogue;
+    private final long journalSequence;
+
+    private Snapshot(long journalSequence, SkipList<Integer, Staff> staff, SkipList<Integer, Member> members, SkipList<Integer, Artist> artists, SkipList<Integer, Item> catalogue){
+	this.journalSequence = journalSequence;
+	this.staff = staff;
+	this.members = members;
+	this.artists = artists;
+	this.catalogue = catalogue;
+    }
+
+    /**
+     * Gets the sequence number of the last journal record included in the snapshot.
+     * @return the sequence number, or 0 if the snapshot was not taken from a journaled Library.
+     */
+    public long getJournalSequence(){
+	return journalSequence;
+    }
+
+    /**
+     * Gets the staff read from the snapshot.
+     * @return the staff, keyed by staffID.
+     */
+    public SkipList<Integer, Staff> getStaff(){
+	return staff;
+    }
+
+    /**
+     * Gets the members read from the snapshot.
+     * @return the members, keyed by memberID.
+     */
+    public SkipList<Integer, Member> getMembers(){
+	return members;
+    }
+
+    /**
+     * Gets the artists read from the snapshot.
+     * @return the artists, keyed by artistID.
+     */
+    public SkipList<Integer, Artist> getArtists(){
+	return artists;
+    }
+
+    /**
+     * Gets the catalogue read from the snapshot.
+     * @return the items, keyed by uID.
+     */
+    public SkipList<Integer, Item> getCatalogue(){
+	return catalogue;
+    }
+
+    /**
+     * An Encoder which writes strings as indexes into the snapshot's string table.
+     */
+    private static final class TableOutput extends ChannelOutput{
+	private final HashMap<String, Integer> table;
+	TableOutput(FileChannel channel, HashMap<String, Integer> table){
+	    super(channel, 1 << 20);
+	    this.table = table;
+	}
+	@Override
+	void writeString(String s) throws IOException{
+	    writeUVarInt(s == null ? 0 : table.get(s) + 1);
+	}
+	void writeTableString(String s) throws IOException{
+	    super.writeString(s);
+	}
+    }
+
+    /**
+     * A Decoder which resolves strings through the snapshot's string table.
+     */
+    private static final class TableInput extends MappedInput{
+	private String[] table = new String[0];
+	TableInput(FileChannel channel) throws IOException{
+	    super(channel);
+	}
+	@Override
+	String readString() throws IOException{
+	    int i = readUVarInt();
+	    if(i == 0)
+		return null;
+	    if(i > table.length)
+		throw new IOException("String index out of range");
+	    return table[i - 1];
+	}
+	void readTable() throws IOException{
+	    table = new String[readUVarInt()];
+	    for(int i = 0; i < table.length; i++)
+		table[i] = super.readString();
+	}
+    }
+
+    private static void intern(HashMap<String, Integer> table, ArrayList<String> order, String s){
+	if(s != null && !table.containsKey(s)){
+	    table.put(s, order.size());
+	    order.add(s);
+	}
+    }
+
+    /**
+     * Writes a snapshot of the given collections, replacing the file at path.
+     * @param path Where the snapshot is written.
+     * @param journalSequence The sequence number of the last journal record reflected in the collections, or 0.
+     * @param staff The staff, keyed by staffID.
+     * @param members The members, keyed by memberID.
+     * @param artists The artists, keyed by artistID.
+     * @param catalogue The items, keyed by uID.
+     * @throws IOException if the snapshot cannot be written.
+     */
+    public static void write(Path path, long journalSequence, OrderedIndex<Integer, Staff> staff, OrderedIndex<Integer, Member> members, OrderedIndex<Integer, Artist> artists, OrderedIndex<Integer, Item> catalogue) throws IOException{
+	HashMap<String, Integer> table = new HashMap<>();
+	ArrayList<String> order = new ArrayList<>();
+	for(Person p : staff.values()){
+	    intern(table, order, p.getFirstName());
+	    intern(table, order, p.getLastName());
+	}
+	for(Person p : members.values()){
+	    intern(table, order, p.getFirstName());
+	    intern(table, order, p.getLastName());
+	}
+	for(Person p : artists.values()){
+	    intern(table, order, p.getFirstName());
+	    intern(table, order, p.getLastName());
+	}
+	for(Item i : catalogue.values()){
+	    intern(table, order, i.getTitle());
+	    intern(table, order, i.getDescription());
+	    for(int s = 0; s < i.getSubjectCount(); s++)
+		intern(table, order, i.getSubject(s));
+	}
+
+	Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+	try(FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)){
+	    TableOutput out = new TableOutput(channel, table);
+	    out.writeByte(MAGIC >>> 24);
+	    out.writeByte(MAGIC >>> 16);
+	    out.writeByte(MAGIC >>> 8);
+	    out.writeByte(MAGIC);
+	    out.writeUVarInt(FORMAT_VERSION);
+	    out.writeUVarLong(journalSequence);
+	    out.writeUVarInt(order.size());
+	    for(String s : order)
+		out.writeTableString(s);
+	    writeSection(out, staff, Staff::getStaffID, Records::writeStaff);
+	    writeSection(out, members, Member::getMemberID, Records::writeMember);
+	    writeSection(out, artists, Artist::getArtistID, Records::writeArtist);
+	    writeSection(out, catalogue, Item::getUID, Records::writeItem);
+	    out.flush();
+	    channel.force(true);
+	}
+	Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @FunctionalInterface
+    private interface RecordWriter<V>{
+	void write(Encoder out, V value) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface RecordReader<V>{
+	V read(Decoder in, int key) throws IOException;
+    }
+
+    private static <V> void writeSection(Encoder out, OrderedIndex<Integer, V> list, ToIntFunction<V> key, RecordWriter<V> writer) throws IOException{
+	out.writeUVarInt(list.size());
+	long prev = Integer.MIN_VALUE;
+	for(V v : list.values()){
+	    int k = key.applyAsInt(v);
+	    out.writeUVarLong(k - prev);
+	    prev = k;
+	    writer.write(out, v);
+	}
+    }
+
+    private static <V> SkipList<Integer, V> readSection(Decoder in, RecordReader<V> reader) throws IOException{
+	int n = in.readUVarInt();
+	SkipList.SortedBuilder<Integer, V> b = new SkipList.SortedBuilder<>(Math.max(6, SkipList.levelsFor(n)));
+	long prev = Integer.MIN_VALUE;
+	for(int i = 0; i < n; i++){
+	    long k = prev + in.readUVarLong();
+	    if(k > Integer.MAX_VALUE || (i > 0 && k == prev))
+		throw new IOException("Keys out of order");
+	    b.add((int) k, reader.read(in, (int) k));
+	    prev = k;
+	}
+	return b.build();
+    }
+
+    /**
+     * Reads a snapshot.
+     * @param path The snapshot file.
+     * @return the collections held in the snapshot.
+     * @throws IOException if the file cannot be read or is not a valid snapshot.
+     */
+    public static Snapshot read(Path path) throws IOException{
+	try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)){
+	    TableInput in = new TableInput(channel);
+	    int magic = (in.readByte() << 24) | (in.readByte() << 16) | (in.readByte() << 8) | in.readByte();
+	    if(magic != MAGIC)
+		throw new IOException(path + " is not a library snapshot");
+	    int version = in.readUVarInt();
+	    if(version < 1 || version > FORMAT_VERSION)
+		throw new IOException("Unsupported snapshot version " + version);
+	    long journalSequence = version >= 2 ? in.readUVarLong() : 0;
+	    in.readTable();
+	    boolean keyed = version >= 3;
+	    SkipList<Integer, Staff> staff = readSection(in, (d, k) -> Records.readStaff(d, k, keyed));
+	    SkipList<Integer, Member> members = readSection(in, (d, k) -> Records.readMember(d, k, keyed));
+	    SkipList<Integer, Artist> artists = readSection(in, (d, k) -> Records.readArtist(d, k, keyed));
+	    SkipList<Integer, Item> catalogue = readSection(in, (d, k) -> Records.readItem(d, k, keyed));
+	    return new Snapshot(journalSequence, staff, members, artists, catalogue);
+	}
+    }
+}
@@ -0,0 +1,9 @@
+package library.storage;
+/**
+ * Proves that a caller is the storage code. Saving and restoring the Library needs the hashed passkeys of Staff and Members, which no other code should read or set (see library.people.Credentials); only library.storage can obtain the single instance.
+ */
+public final class StorageKey{
+    static final StorageKey KEY = new StorageKey();
+
+    private StorageKey(){}
+}
@@ -0,0 +1,317 @@
+package library.structures;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+/**
+ * A B+tree with int keys. Each node holds up to ORDER keys in a plain int[], so a lookup reads a few wide nodes instead of following a pointer per comparison, and the keys it compares sit next to each other in memory. Values are kept only in the leaves, which are linked in key order for scans.
+ * <p>
+ * Deleting an entry takes it out of its leaf but does not merge leaves which become sparse; the Library never deletes from its maps, so the tree is kept simple for inserts and lookups.
+ * @param <U> the value data type.
+ */
+public class BPlusTree<U> implements OrderedMap<Integer, U>{
+    private static final int ORDER = 64; //Keys per node: 256 bytes of keys, four cache lines
+
+    private static final class Node{
+	final int[] keys = new int[ORDER];
+	final Object[] slots; //Values in a leaf; children (one more than keys) in an inner node
+	int n = 0;
+	Node next; //The next leaf; null in inner nodes
+
+	Node(boolean leaf){
+	    slots = new Object[leaf ? ORDER : ORDER + 1];
+	}
+
+	boolean isLeaf(){
+	    return slots.length == ORDER;
+	}
+    }
+
+    private Node root = new Node(true);
+    private Node first = root;
+    private int size = 0;
+    //Set by insert when the node it inserted into split: the new right node and the first key under it
+    private Node splitNode;
+    private int splitKey;
+
+    /**
+     * Generates an empty BPlusTree.
+     */
+    public BPlusTree(){}
+
+    /**
+     * Generates a shallow copy of a BPlusTree. Nodes are copied, values are shared.
+     * @param t The tree to be copied.
+     */
+    public BPlusTree(BPlusTree<U> t){
+	first = null;
+	root = copy(t.root, new Node[1]);
+	size = t.size;
+    }
+
+    private Node copy(Node from, Node[] lastLeaf){
+	Node to = new Node(from.isLeaf());
+	to.n = from.n;
+	System.arraycopy(from.keys, 0, to.keys, 0, from.n);
+	if(to.isLeaf()){
+	    System.arraycopy(from.slots, 0, to.slots, 0, from.n);
+	    if(lastLeaf[0] == null)
+		first = to;
+	    else
+		lastLeaf[0].next = to;
+	    lastLeaf[0] = to;
+	}else{
+	    for(int i = 0; i <= from.n; i++)
+		to.slots[i] = copy((Node)from.slots[i], lastLeaf);
+	}
+	return to;
+    }
+
+    /**
+     * Generates a shallow copy of the BPlusTree (see the copy constructor).
+     * @return the copy.
+     */
+    public BPlusTree<U> copy(){
+	return new BPlusTree<>(this);
+    }
+
+    /**
+     * Finds the child of an inner node which covers a key.
+     * @return the number of keys in the node not greater than key.
+     */
+    private static int child(Node node, int key){
+	int lo = 0, hi = node.n;
+	while(lo < hi){
+	    int mid = (lo + hi) >>> 1;
+	    if(node.keys[mid] <= key)
+		lo = mid + 1;
+	    else
+		hi = mid;
+	}
+	return lo;
+    }
+
+    /**
+     * Finds a key in a leaf.
+     * @return the key's position, or -(insertion point) - 1 if it is not there.
+     */
+    private static int find(Node leaf, int key){
+	int lo = 0, hi = leaf.n - 1;
+	while(lo <= hi){
+	    int mid = (lo + hi) >>> 1;
+	    int k = leaf.keys[mid];
+	    if(k < key)
+		lo = mid + 1;
+	    else if(k > key)
+		hi = mid - 1;
+	    else
+		return mid;
+	}
+	return -(lo + 1);
+    }
+
+    private Node leafFor(int key){
+	Node x = root;
+	while(!x.isLeaf())
+	    x = (Node)x.slots[child(x, key)];
+	return x;
+    }
+
+    /**
+     * Gets the item associated with the given key.
+     * @param searchKey Key for desired value.
+     * @return value at location searchKey. If it does not exist, returns null.
+     */
+    @SuppressWarnings("unchecked")
+    public U get(int searchKey){
+	Node leaf = leafFor(searchKey);
+	int i = find(leaf, searchKey);
+	return i >= 0 ? (U)leaf.slots[i] : null;
+    }
+
+    public U get(Integer searchKey){
+	return get(searchKey.intValue());
+    }
+
+    /**
+     * Inserts the item in the tree without boxing the key (insert(int, U) would be ambiguous with insert(Integer, U) when U is Integer). If the key already exists then the value is updated.
+     * @param searchKey Key associated with new value.
+     * @param newValue New value to be inserted into the tree.
+     */
+    public void put(int searchKey, U newValue){
+	splitNode = null;
+	insert(root, searchKey, newValue);
+	if(splitNode != null){ //The root split: grow the tree by one level
+	    Node r = new Node(false);
+	    r.keys[0] = splitKey;
+	    r.slots[0] = root;
+	    r.slots[1] = splitNode;
+	    r.n = 1;
+	    root = r;
+	    splitNode = null;
+	}
+    }
+
+    public void insert(Integer searchKey, U newValue){
+	put(searchKey.intValue(), newValue);
+    }
+
+    private void insert(Node x, int key, U value){
+	if(x.isLeaf()){
+	    int i = find(x, key);
+	    if(i >= 0){
+		x.slots[i] = value;
+		return;
+	    }
+	    i = -i - 1;
+	    size++;
+	    if(x.n < ORDER){
+		insertAt(x, i, key, value);
+		return;
+	    }
+	    Node right = new Node(true);
+	    int half = ORDER / 2;
+	    right.n = ORDER - half;
+	    System.arraycopy(x.keys, half, right.keys, 0, right.n);
+	    System.arraycopy(x.slots, half, right.slots, 0, right.n);
+	    Arrays.fill(x.slots, half, ORDER, null);
+	    x.n = half;
+	    right.next = x.next;
+	    x.next = right;
+	    if(i <= half)
+		insertAt(x, i, key, value);
+	    else
+		insertAt(right, i - half, key, value);
+	    splitNode = right;
+	    splitKey = right.keys[0];
+	    return;
+	}
+	int c = child(x, key);
+	insert((Node)x.slots[c], key, value);
+	if(splitNode == null)
+	    return;
+	Node newChild = splitNode;
+	int newKey = splitKey;
+	splitNode = null;
+	if(x.n < ORDER){
+	    insertChild(x, c, newKey, newChild);
+	    return;
+	}
+	//Split the inner node: the middle key moves up, the keys after it and their children move right
+	Node right = new Node(false);
+	//Put the node's keys and children, and the new ones, in order, then divide them
+	int[] keys = new int[ORDER + 1];
+	Object[] children = new Object[ORDER + 2];
+	System.arraycopy(x.keys, 0, keys, 0, c);
+	keys[c] = newKey;
+	System.arraycopy(x.keys, c, keys, c + 1, ORDER - c);
+	System.arraycopy(x.slots, 0, children, 0, c + 1);
+	children[c + 1] = newChild;
+	System.arraycopy(x.slots, c + 1, children, c + 2, ORDER - c);
+	int mid = (ORDER + 1) / 2;
+	x.n = mid;
+	System.arraycopy(keys, 0, x.keys, 0, mid);
+	System.arraycopy(children, 0, x.slots, 0, mid + 1);
+	Arrays.fill(x.slots, mid + 1, ORDER + 1, null);
+	right.n = ORDER - mid;
+	System.arraycopy(keys, mid + 1, right.keys, 0, right.n);
+	System.arraycopy(children, mid + 1, right.slots, 0, right.n + 1);
+	splitNode = right;
+	splitKey = keys[mid];
+    }
+
+    private static void insertAt(Node leaf, int i, int key, Object value){
+	System.arraycopy(leaf.keys, i, leaf.keys, i + 1, leaf.n - i);
+	System.arraycopy(leaf.slots, i, leaf.slots, i + 1, leaf.n - i);
+	leaf.keys[i] = key;
+	leaf.slots[i] = value;
+	leaf.n++;
+    }
+
+    private static void insertChild(Node x, int c, int key, Node child){
+	System.arraycopy(x.keys, c, x.keys, c + 1, x.n - c);
+	System.arraycopy(x.slots, c + 1, x.slots, c + 2, x.n - c);
+	x.keys[c] = key;
+	x.slots[c + 1] = child;
+	x.n++;
+    }
+
+    /**
+     * Deletes the item associated with the key from the tree.
+     * @param searchKey Key of the item to be deleted.
+     * @return If the item is removed from the tree return the item; if not, returns null.
+     */
+    @SuppressWarnings("unchecked")
+    public U delete(int searchKey){
+	Node leaf = leafFor(searchKey);
+	int i = find(leaf, searchKey);
+	if(i < 0)
+	    return null;
+	U value = (U)leaf.slots[i];
+	System.arraycopy(leaf.keys, i + 1, leaf.keys, i, leaf.n - i - 1);
+	System.arraycopy(leaf.slots, i + 1, leaf.slots, i, leaf.n - i - 1);
+	leaf.slots[--leaf.n] = null;
+	size--;
+	return value;
+    }
+
+    public U delete(Integer searchKey){
+	return delete(searchKey.intValue());
+    }
+
+    /**
+     * Gets the keys for the tree.
+     * @return ArrayList{@literal <Integer>} of keys.
+     */
+    public ArrayList<Integer> getKeys(){
+	ArrayList<Integer> retArray = new ArrayList<>(size);
+	for(Node leaf = first; leaf != null; leaf = leaf.next){
+	    for(int i = 0; i < leaf.n; i++)
+		retArray.add(leaf.keys[i]);
+	}
+	return retArray;
+    }
+
+    /**
+     * Gets a lazy view of the values in key order. Nothing is copied; the leaves are walked as the iterator advances.
+     * @return Iterable{@literal <U>} over the values.
+     */
+    public Iterable<U> values(){
+	return () -> new Iterator<U>(){
+	    private Node leaf = first;
+	    private int i = 0;
+	    public boolean hasNext(){
+		while(leaf != null && i >= leaf.n){
+		    leaf = leaf.next;
+		    i = 0;
+		}
+		return leaf != null;
+	    }
+	    @SuppressWarnings("unchecked")
+	    public U next(){
+		if(!hasNext())
+		    throw new NoSuchElementException();
+		return (U)leaf.slots[i++];
+	    }
+	};
+    }
+
+    /**
+     * Gets the number of entries.
+     * @return the number of keys in the tree.
+     */
+    public int size(){
+	return size;
+    }
+
+    @Override
+    public String toString(){
+	StringBuilder sb = new StringBuilder("[");
+	for(U value : values()){
+	    if(sb.length() > 1)
+		sb.append(", ");
+	    sb.append(value);
+	}
+	return sb.append("]").toString();
+    }
+}
@@ -0,0 +1,127 @@
+package library.structures;
+import java.util.Arrays;
+/**
+ * A blocked Bloom filter over int hashes, such as keys' hash codes. It answers whether a key might be in a set: a no is always right, a yes is wrong for about 1% of absent keys. Each key sets K bits inside one 512-bit block, so a test reads a single cache line.
+ * <p>
+ * Bits cannot be cleared, so a key which is removed keeps letting lookups through. The filter counts keys added and removed, and needsRebuild tells its owner when there are more than it was sized for or when removed keys make up half of those added; rebuilding from the live keys then costs O(1) per change made since the last rebuild.
+ * <p>
+ * The filter is not synchronized. Lookups may run alongside each other, but a change must not run alongside anything else, so an owner shared between threads changes its filter only while it excludes its readers, or else builds a new filter and swaps it in.
+ */
+public final class BloomFilter{
+    private static final int BITS_PER_KEY = 10;
+    private static final int WORDS_PER_BLOCK = 8; //512 bits, one cache line
+    private static final int K = 5;
+    private static final int MIN_CAPACITY = 1024;
+    private final long[] words;
+    private final int blockMask;
+    private final int capacity;
+    private int added = 0;
+    private int removed = 0;
+    //Set once the filter no longer matches its owner's keys; it may then be shared, so it is never changed again
+    private boolean stale = false;
+
+    /**
+     * Generates an empty BloomFilter.
+     * @param expected The number of keys it will hold; it is sized for twice as many, so it can grow before it is rebuilt.
+     */
+    public BloomFilter(int expected){
+	capacity = Math.max(MIN_CAPACITY, expected * 2);
+	long bits = (long)capacity * BITS_PER_KEY;
+	int blocks = (int)Math.min(1 << 24, Long.highestOneBit(Math.max(1, bits / 512 - 1)) << 1);
+	words = new long[blocks * WORDS_PER_BLOCK];
+	blockMask = blocks - 1;
+    }
+
+    /**
+     * Generates a copy of a BloomFilter.
+     * @param other The filter to be copied.
+     */
+    public BloomFilter(BloomFilter other){
+	words = other.words.clone();
+	blockMask = other.blockMask;
+	capacity = other.capacity;
+	added = other.added;
+	removed = other.removed;
+	stale = other.stale;
+    }
+
+    private static long mix(int hash){
+	long h = hash * 0x9E3779B97F4A7C15L;
+	return h ^ (h >>> 29);
+    }
+
+    /**
+     * Adds a key.
+     * @param hash The key's hash code.
+     */
+    public void add(int hash){
+	long h = mix(hash);
+	int base = ((int)(h >>> 40) & blockMask) * WORDS_PER_BLOCK;
+	for(int i = 0; i < K; i++){
+	    h *= 0xC2B2AE3D27D4EB4FL;
+	    int bit = (int)(h >>> 55); //0 to 511
+	    words[base + (bit >>> 6)] |= 1L << bit;
+	}
+	added++;
+    }
+
+    /**
+     * Checks whether a key might have been added.
+     * @param hash The key's hash code.
+     * @return false if the key was certainly never added.
+     */
+    public boolean mightContain(int hash){
+	long h = mix(hash);
+	int base = ((int)(h >>> 40) & blockMask) * WORDS_PER_BLOCK;
+	for(int i = 0; i < K; i++){
+	    h *= 0xC2B2AE3D27D4EB4FL;
+	    int bit = (int)(h >>> 55);
+	    if((words[base + (bit >>> 6)] & (1L << bit)) == 0)
+		return false;
+	}
+	return true;
+    }
+
+    /**
+     * Records that a key was removed from the set. Its bits stay set.
+     */
+    public void removed(){
+	removed++;
+    }
+
+    /**
+     * Adds every key of another filter of the same size.
+     * @param other The filter whose keys are added.
+     * @return false, leaving this filter unchanged, if the filters differ in size.
+     */
+    public boolean union(BloomFilter other){
+	if(other.words.length != words.length)
+	    return false;
+	for(int i = 0; i < words.length; i++)
+	    words[i] |= other.words[i];
+	added += other.added;
+	removed += other.removed;
+	stale |= other.stale;
+	return true;
+    }
+
+    /**
+     * Checks whether the filter should be rebuilt from the live keys.
+     * @return true if it holds more keys than it was sized for, if half the keys added have since been removed, or if it has been marked stale.
+     */
+    public boolean needsRebuild(){
+	return stale || added > capacity || removed * 2 > added;
+    }
+
+    /**
+     * Marks the filter as stale: it still answers lookups, but needsRebuild is true from now on. Used when keys leave the set in bulk without being counted. A stale filter may be shared by several owners (see SkipList.splitAt), so they replace it rather than change it.
+     */
+    public void markStale(){
+	stale = true;
+    }
+
+    @Override
+    public String toString(){
+	return "BloomFilter[" + (added - removed) + " of " + capacity + " keys, " + words.length * 64L + " bits]";
+    }
+}
@@ -0,0 +1,166 @@
+package library.structures;
+import java.util.function.BiPredicate;
+/**
+ * Finds the differences between two versions of an ordered structure in a single merge walk, O(n + m), without building key lists or searching either structure.
+ */
+public final class Diff{
+    private Diff(){}
+
+    /**
+     * Receives the differences found by a Diff, in key order. Each method does nothing by default.
+     * @param <T> the key data type.
+     * @param <U> the value data type.
+     */
+    public interface Visitor<T, U>{
+	/**
+	 * Called for a key only in the newer structure.
+	 * @param key The key.
+	 * @param value The value in the newer structure.
+	 */
+	default void added(T key, U value){}
+
+	/**
+	 * Called for a key only in the older structure.
+	 * @param key The key.
+	 * @param value The value in the older structure.
+	 */
+	default void removed(T key, U value){}
+
+	/**
+	 * Called for a key in both structures whose value differs.
+	 * @param key The key.
+	 * @param oldValue The value in the older structure.
+	 * @param newValue The value in the newer structure.
+	 */
+	default void changed(T key, U oldValue, U newValue){}
+    }
+
+    /**
+     * A position in one of the structures being compared.
+     */
+    private interface Cursor<T, U>{
+	boolean done();
+	T key();
+	U value();
+	void advance();
+    }
+
+    /**
+     * Compares two SkipLists. Values are compared by reference, which suits the library's items and people: they are never changed in place, so a changed entry always holds a new object, while copies of a list share the objects of unchanged entries.
+     * @param <T> the key data type.
+     * @param <U> the value data type.
+     * @param older The earlier version.
+     * @param newer The later version.
+     * @param visitor Receives the differences.
+     * @return the number of differences.
+     */
+    public static <T extends Comparable<? super T>, U> int between(SkipList<T, U> older, SkipList<T, U> newer, Visitor<? super T, ? super U> visitor){
+	return between(older, newer, (a, b) -> a == b, visitor);
+    }
+
+    /**
+     * Compares two SkipLists.
+     * @param <T> the key data type.
+     * @param <U> the value data type.
+     * @param older The earlier version.
+     * @param newer The later version.
+     * @param same Decides whether two values for the same key are unchanged; not called when they are the same object.
+     * @param visitor Receives the differences.
+     * @return the number of differences.
+     */
+    public static <T extends Comparable<? super T>, U> int between(SkipList<T, U> older, SkipList<T, U> newer, BiPredicate<? super U, ? super U> same, Visitor<? super T, ? super U> visitor){
+	if(older == newer)
+	    return 0;
+	return walk(skipCursor(older), skipCursor(newer), same, visitor);
+    }
+
+    /**
+     * Compares two OrderedLists. Values are compared by reference (see between for SkipLists).
+     * @param <T> the key data type.
+     * @param <U> the value data type.
+     * @param older The earlier version.
+     * @param newer The later version.
+     * @param visitor Receives the differences.
+     * @return the number of differences.
+     */
+    public static <T extends Comparable<? super T>, U> int between(OrderedList<T, U> older, OrderedList<T, U> newer, Visitor<? super T, ? super U> visitor){
+	return between(older, newer, (a, b) -> a == b, visitor);
+    }
+
+    /**
+     * Compares two OrderedLists.
+     * @param <T> the key data type.
+     * @param <U> the value data type.
+     * @param older The earlier version.
+     * @param newer The later version.
+     * @param same Decides whether two values for the same key are unchanged; not called when they are the same object.
+     * @param visitor Receives the differences.
+     * @return the number of differences.
+     */
+    public static <T extends Comparable<? super T>, U> int between(OrderedList<T, U> older, OrderedList<T, U> newer, BiPredicate<? super U, ? super U> same, Visitor<? super T, ? super U> visitor){
+	if(older == newer)
+	    return 0;
+	return walk(listCursor(older), listCursor(newer), same, visitor);
+    }
+
+    private static <T extends Comparable<? super T>, U> int walk(Cursor<T, U> a, Cursor<T, U> b, BiPredicate<? super U, ? super U> same, Visitor<? super T, ? super U> visitor){
+	int differences = 0;
+	while(!a.done() || !b.done()){
+	    int c = a.done() ? 1 : b.done() ? -1 : a.key().compareTo(b.key());
+	    if(c < 0){
+		visitor.removed(a.key(), a.value());
+		a.advance();
+		differences++;
+	    }else if(c > 0){
+		visitor.added(b.key(), b.value());
+		b.advance();
+		differences++;
+	    }else{
+		U oldValue = a.value(), newValue = b.value();
+		if(oldValue != newValue && !same.test(oldValue, newValue)){
+		    visitor.changed(a.key(), oldValue, newValue);
+		    differences++;
+		}
+		a.advance();
+		b.advance();
+	    }
+	}
+	return differences;
+    }
+
+    private static <T extends Comparable<? super T>, U> Cursor<T, U> skipCursor(SkipList<T, U> list){
+	return new Cursor<T, U>(){
+	    private SkipList<T, U>.Node node = list.first();
+	    public boolean done(){
+		return node == null;
+	    }
+	    public T key(){
+		return node.key;
+	    }
+	    public U value(){
+		return node.value;
+	    }
+	    public void advance(){
+		node = node.forward.get(0);
+	    }
+	};
+    }
+
+    private static <T extends Comparable<? super T>, U> Cursor<T, U> listCursor(OrderedList<T, U> list){
+	return new Cursor<T, U>(){
+	    private OrderedList<T, U>.Node node = list.root;
+	    public boolean done(){
+		return node == null;
+	    }
+	    public T key(){
+		return node.key;
+	    }
+	    public U value(){
+		return node.data;
+	    }
+	    public void advance(){
+		node = node.next;
+	    }
+	};
+    }
+}
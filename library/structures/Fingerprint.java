@@ -0,0 +1,23 @@
+package library.structures;
+/**
+ * 64-bit fingerprints of strings, for keys where String.hashCode's 32 bits collide too often: among a million titles, String.hashCode gives about a hundred pairs of distinct titles the same hash, and a 64-bit fingerprint gives such a pair in about one catalogue in forty million.
+ */
+public final class Fingerprint{
+    private Fingerprint(){}
+
+    /**
+     * Computes the fingerprint of a string: FNV-1a over its chars, followed by a final mix so that every bit of the result depends on every char.
+     * @param s The string.
+     * @return the fingerprint.
+     */
+    public static long of(CharSequence s){
+	long h = 0xcbf29ce484222325L;
+	for(int i = 0; i < s.length(); i++)
+	    h = (h ^ s.charAt(i)) * 0x100000001b3L;
+	h ^= h >>> 33;
+	h *= 0xff51afd7ed558ccdL;
+	h ^= h >>> 33;
+	h *= 0xc4ceb9fe1a85ec53L;
+	return h ^ (h >>> 33);
+    }
+}
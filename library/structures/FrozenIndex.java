@@ -0,0 +1,163 @@
+package library.structures;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+/**
+ * An immutable map from int keys, for read-only snapshots (see SkipList.freeze). The keys are kept in one int[] in Eytzinger order: the root of an implicit binary search tree at 1 and the children of k at 2k and 2k + 1, so the first few steps of every search read the same few cache lines. The values sit in a parallel array.
+ * <p>
+ * A search walks down the tree choosing a child with arithmetic instead of a branch, so it does not mispredict, and always takes log2(n) steps.
+ * @param <U> the value data type.
+ */
+public final class FrozenIndex<U> implements OrderedIndex<Integer, U>{
+    private final int[] keys; //keys[0] is unused
+    private final Object[] values;
+    private final int n;
+
+    /**
+     * Generates a FrozenIndex from keys supplied in strictly increasing order.
+     * @param sorted The keys.
+     * @param sortedValues The values, in the order of their keys.
+     * @param n The number of entries.
+     */
+    FrozenIndex(int[] sorted, Object[] sortedValues, int n){
+	this.n = n;
+	keys = new int[n + 1];
+	values = new Object[n + 1];
+	fill(sorted, sortedValues, 0, 1);
+    }
+
+    /**
+     * Copies an ordered map with int keys into a FrozenIndex (see SkipList.freeze, which does the same for a SkipList without boxing its keys).
+     * @param <U> the value data type.
+     * @param map The map; it is not changed.
+     * @return a FrozenIndex with the map's entries.
+     */
+    public static <U> FrozenIndex<U> of(OrderedIndex<Integer, U> map){
+	int n = map.size();
+	int[] keys = new int[n];
+	Object[] values = new Object[n];
+	int i = 0;
+	for(int key : map.getKeys())
+	    keys[i++] = key;
+	i = 0;
+	for(U value : map.values())
+	    values[i++] = value;
+	return new FrozenIndex<>(keys, values, n);
+    }
+
+    /**
+     * Places the sorted entries from position i on in the subtree rooted at k, in order.
+     * @return the position of the first entry not placed.
+     */
+    private int fill(int[] sorted, Object[] sortedValues, int i, int k){
+	if(k <= n){
+	    i = fill(sorted, sortedValues, i, 2 * k);
+	    keys[k] = sorted[i];
+	    values[k] = sortedValues[i];
+	    i = fill(sorted, sortedValues, i + 1, 2 * k + 1);
+	}
+	return i;
+    }
+
+    /**
+     * Finds the node of the tree holding the least key not less than key.
+     * @return the node, or 0 if every key is less than key.
+     */
+    private int lowerBound(int key){
+	int k = 1;
+	while(k <= n)
+	    k = 2 * k + (keys[k] < key ? 1 : 0);
+	//The path went right after the node we want and left ever since: undo those moves
+	return k >>> (Integer.numberOfTrailingZeros(~k) + 1);
+    }
+
+    /**
+     * Gets the item associated with the given key.
+     * @param searchKey Key for desired value.
+     * @return value at location searchKey. If it does not exist, returns null.
+     */
+    @SuppressWarnings("unchecked")
+    public U get(int searchKey){
+	int k = lowerBound(searchKey);
+	return k != 0 && keys[k] == searchKey ? (U)values[k] : null;
+    }
+
+    public U get(Integer searchKey){
+	return get(searchKey.intValue());
+    }
+
+    /**
+     * Finds the node after k in key order.
+     * @return the node, or 0 after the last one.
+     */
+    private int successor(int k){
+	if(2 * k + 1 <= n){ //Leftmost node of the right subtree
+	    k = 2 * k + 1;
+	    while(2 * k <= n)
+		k *= 2;
+	    return k;
+	}
+	//Up past the right children, then once more
+	return k >>> (Integer.numberOfTrailingZeros(~k) + 1);
+    }
+
+    private int first(){
+	if(n == 0)
+	    return 0;
+	int k = 1;
+	while(2 * k <= n)
+	    k *= 2;
+	return k;
+    }
+
+    /**
+     * Gets the keys for the index.
+     * @return ArrayList{@literal <Integer>} of keys, in order.
+     */
+    public ArrayList<Integer> getKeys(){
+	ArrayList<Integer> retArray = new ArrayList<>(n);
+	for(int k = first(); k != 0; k = successor(k))
+	    retArray.add(keys[k]);
+	return retArray;
+    }
+
+    /**
+     * Gets the values in key order.
+     * @return Iterable{@literal <U>} over the values.
+     */
+    public Iterable<U> values(){
+	return () -> new Iterator<U>(){
+	    private int k = first();
+	    public boolean hasNext(){
+		return k != 0;
+	    }
+	    @SuppressWarnings("unchecked")
+	    public U next(){
+		if(k == 0)
+		    throw new NoSuchElementException();
+		U value = (U)values[k];
+		k = successor(k);
+		return value;
+	    }
+	};
+    }
+
+    /**
+     * Gets the number of entries.
+     * @return the number of keys in the index.
+     */
+    public int size(){
+	return n;
+    }
+
+    @Override
+    public String toString(){
+	StringBuilder sb = new StringBuilder("[");
+	for(U value : values()){
+	    if(sb.length() > 1)
+		sb.append(", ");
+	    sb.append(value);
+	}
+	return sb.append("]").toString();
+    }
+}
@@ -0,0 +1,100 @@
+package library.structures;
+import java.util.Arrays;
+/**
+ * A hash map from int keys to non-negative int values, such as positions in an array. Keys and values are kept in two primitive arrays with linear probing, so nothing is boxed and a lookup touches one or two cache lines.
+ * Entries cannot be removed.
+ */
+public final class IntHashIndex{
+    private static final int ABSENT = -1;
+    private int[] keys;
+    private int[] values; //ABSENT marks a free slot
+    private int mask;
+    private int size = 0;
+
+    /**
+     * Generates an empty IntHashIndex.
+     * @param expected The number of entries expected; the index grows past it as needed.
+     */
+    public IntHashIndex(int expected){
+	int capacity = Integer.highestOneBit(Math.max(8, expected * 2) - 1) << 1;
+	keys = new int[capacity];
+	values = new int[capacity];
+	Arrays.fill(values, ABSENT);
+	mask = capacity - 1;
+    }
+
+    /**
+     * Generates a copy of an IntHashIndex.
+     * @param other The index to be copied.
+     */
+    public IntHashIndex(IntHashIndex other){
+	keys = other.keys.clone();
+	values = other.values.clone();
+	mask = other.mask;
+	size = other.size;
+    }
+
+    private static int hash(int key){
+	int h = key * 0x9E3779B9; //Fibonacci hashing spreads sequential keys
+	return h ^ (h >>> 16);
+    }
+
+    /**
+     * Gets the value associated with the given key.
+     * @param key Key for desired value.
+     * @return the value, or -1 if the key is not in the index.
+     */
+    public int get(int key){
+	for(int i = hash(key) & mask; ; i = (i + 1) & mask){
+	    int v = values[i];
+	    if(v == ABSENT || keys[i] == key)
+		return v;
+	}
+    }
+
+    /**
+     * Associates a value with a key. If the key already exists then the value is updated.
+     * @param key Key associated with the value.
+     * @param value The value; must not be negative.
+     * @return the previous value, or -1 if the key was not in the index.
+     * @throws IllegalArgumentException if value is negative.
+     */
+    public int put(int key, int value){
+	if(value < 0)
+	    throw new IllegalArgumentException("Negative value " + value);
+	int i = hash(key) & mask;
+	while(values[i] != ABSENT && keys[i] != key)
+	    i = (i + 1) & mask;
+	int old = values[i];
+	keys[i] = key;
+	values[i] = value;
+	if(old == ABSENT && ++size * 2 > keys.length)
+	    grow();
+	return old;
+    }
+
+    private void grow(){
+	int[] oldKeys = keys, oldValues = values;
+	keys = new int[oldKeys.length * 2];
+	values = new int[oldKeys.length * 2];
+	Arrays.fill(values, ABSENT);
+	mask = keys.length - 1;
+	for(int j = 0; j < oldKeys.length; j++){
+	    if(oldValues[j] == ABSENT)
+		continue;
+	    int i = hash(oldKeys[j]) & mask;
+	    while(values[i] != ABSENT)
+		i = (i + 1) & mask;
+	    keys[i] = oldKeys[j];
+	    values[i] = oldValues[j];
+	}
+    }
+
+    /**
+     * Gets the number of entries.
+     * @return the number of keys in the index.
+     */
+    public int size(){
+	return size;
+    }
+}
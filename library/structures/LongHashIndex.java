@@ -0,0 +1,115 @@
+package library.structures;
+/**
+ * A hash map from long keys, such as fingerprints, to int values. Keys and values are kept in two primitive arrays with linear probing, so nothing is boxed and a lookup touches one or two cache lines (see IntHashIndex).
+ * A free slot holds the key 0, so that key is kept on the side. Entries cannot be removed.
+ */
+public final class LongHashIndex{
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size = 0;
+    private boolean hasZero = false;
+    private int zeroValue;
+
+    /**
+     * Generates an empty LongHashIndex.
+     * @param expected The number of entries expected; the index grows past it as needed.
+     */
+    public LongHashIndex(int expected){
+	int capacity = Integer.highestOneBit(Math.max(8, expected * 2) - 1) << 1;
+	keys = new long[capacity];
+	values = new int[capacity];
+	mask = capacity - 1;
+    }
+
+    private static int hash(long key){
+	long h = key * 0x9E3779B97F4A7C15L; //Fibonacci hashing spreads sequential keys
+	return (int)(h ^ (h >>> 32));
+    }
+
+    /**
+     * Gets the value associated with the given key.
+     * @param key Key for desired value.
+     * @param absent What to return if the key is not in the index.
+     * @return the value, or absent.
+     */
+    public int get(long key, int absent){
+	if(key == 0)
+	    return hasZero ? zeroValue : absent;
+	for(int i = hash(key) & mask; ; i = (i + 1) & mask){
+	    long k = keys[i];
+	    if(k == key)
+		return values[i];
+	    if(k == 0)
+		return absent;
+	}
+    }
+
+    /**
+     * Checks if a key is in the index.
+     * @param key The key.
+     * @return true if the key has a value.
+     */
+    public boolean containsKey(long key){
+	if(key == 0)
+	    return hasZero;
+	for(int i = hash(key) & mask; ; i = (i + 1) & mask){
+	    long k = keys[i];
+	    if(k == key)
+		return true;
+	    if(k == 0)
+		return false;
+	}
+    }
+
+    /**
+     * Associates a value with a key. If the key already exists then the value is updated.
+     * @param key Key associated with the value.
+     * @param value The value.
+     * @return true if the key was not in the index.
+     */
+    public boolean put(long key, int value){
+	if(key == 0){
+	    boolean added = !hasZero;
+	    hasZero = true;
+	    zeroValue = value;
+	    if(added)
+		size++;
+	    return added;
+	}
+	int i = hash(key) & mask;
+	while(keys[i] != 0 && keys[i] != key)
+	    i = (i + 1) & mask;
+	boolean added = keys[i] == 0;
+	keys[i] = key;
+	values[i] = value;
+	if(added && ++size * 2 > keys.length)
+	    grow();
+	return added;
+    }
+
+    private void grow(){
+	long[] oldKeys = keys;
+	int[] oldValues = values;
+	keys = new long[oldKeys.length * 2];
+	values = new int[oldKeys.length * 2];
+	mask = keys.length - 1;
+	for(int j = 0; j < oldKeys.length; j++){
+	    if(oldKeys[j] == 0)
+		continue;
+	    int i = hash(oldKeys[j]) & mask;
+	    while(keys[i] != 0)
+		i = (i + 1) & mask;
+	    keys[i] = oldKeys[j];
+	    values[i] = oldValues[j];
+	}
+    }
+
+    /**
+     * Gets the number of entries.
+     * @return the number of keys in the index.
+     */
+    public int size(){
+	return size;
+    }
+}
@@ -0,0 +1,30 @@
+package library.structures;
+import java.util.ArrayList;
+/**
+ * A map whose entries are kept in key order, read only. OrderedMap adds the changes; FrozenIndex implements only this.
+ * @param <K> the key data type. Must be Comparable for ordering.
+ * @param <V> the value data type.
+ */
+public interface OrderedIndex<K extends Comparable<? super K>, V>{
+    /**
+     * Gets the item associated with the given key.
+     * @param searchKey Key for desired value.
+     * @return value at location searchKey. If it does not exist, returns null.
+     */
+    public V get(K searchKey);
+    /**
+     * Gets the keys for the map.
+     * @return ArrayList{@literal <K>} of keys, in order.
+     */
+    public ArrayList<K> getKeys();
+    /**
+     * Gets a lazy view of the values in key order. Nothing is copied, so it reflects later updates.
+     * @return Iterable{@literal <V>} over the values.
+     */
+    public Iterable<V> values();
+    /**
+     * Gets the number of entries.
+     * @return the number of keys in the map.
+     */
+    public int size();
+}
@@ -1,16 +1,18 @@
 package library.structures;
 import java.util.Comparator;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 /**
  * An ordered linked-list data structure.
  * @param <T> the key data type. Must be Comparable for ordering.
  * @param <U> the value data type.
  */
-public class OrderedList<T extends Comparable<? super T>, U>{
+public class OrderedList<T extends Comparable<? super T>, U> implements OrderedMap<T, U>{
     protected class Node{
-	private T key;
-	private U data;
-	private Node next;
+	T key;
+	U data;
+	Node next;
 	public Node(T key, U data){
 	    this.key = key;
 	    this.data = data;
@@ -18,8 +20,10 @@ public class OrderedList<T extends Comparable<? super T>, U>{
 	}
     }
 
-    private Node root;
+    Node root;
     private int size = 0;
+    //Answers most gets for absent keys without a traversal; null unless enabled
+    private BloomFilter bloom;
 
     /**
      * Inserts the item in the list. If the key already exists then the value is updated.
@@ -30,11 +34,13 @@ public class OrderedList<T extends Comparable<? super T>, U>{
 	if(root == null){
 	    root = new Node(searchKey, data);
 	    size++;
+	    added(searchKey);
 	}else if(root.key.compareTo(searchKey) > 0){
 	    Node n = new Node(searchKey, data);
 	    n.next = root;
 	    root = n;
 	    size++;
+	    added(searchKey);
 	}else{
 	    Node curr = root;
 	    while(curr.next != null && curr.next.key.compareTo(searchKey) <= 0){ //While the next key is less than the searchKey
@@ -48,6 +54,7 @@ public class OrderedList<T extends Comparable<? super T>, U>{
 		n.next = curr.next;
 		curr.next = n;
 		size++;
+		added(searchKey);
 	    }
 	}
     }
@@ -64,6 +71,7 @@ public class OrderedList<T extends Comparable<? super T>, U>{
 	    Node curr = root;
 	    root = curr.next;
 	    size--;
+	    removed();
 	    return curr.data;
 	}else{
 	    Node prev = root;
@@ -76,6 +84,7 @@ public class OrderedList<T extends Comparable<? super T>, U>{
 	    if(curr != null && curr.key.compareTo(searchKey) == 0){
 		prev.next = curr.next;
 		size--;
+		removed();
 		return curr.data;
 	    }
 	}
@@ -88,7 +97,7 @@ public class OrderedList<T extends Comparable<? super T>, U>{
      * @return value at location searchKey. If it does not exist, returns null.
      */    
     public U get(T searchKey){
-	if(root == null){
+	if(root == null || (bloom != null && !bloom.mightContain(searchKey.hashCode()))){
 	    return null;
 	}else{
 	    Node curr = root;
@@ -103,6 +112,45 @@ public class OrderedList<T extends Comparable<? super T>, U>{
 	return null;
     }
 
+    /**
+     * Adds a key to the Bloom filter, if there is one, rebuilding the filter if it has grown past its size.
+     */
+    private void added(T key){
+	if(bloom == null)
+	    return;
+	bloom.add(key.hashCode());
+	if(bloom.needsRebuild())
+	    enableBloomFilter();
+    }
+
+    /**
+     * Tells the Bloom filter, if there is one, that a key was deleted, rebuilding the filter after many deletes.
+     */
+    private void removed(){
+	if(bloom == null)
+	    return;
+	bloom.removed();
+	if(bloom.needsRebuild())
+	    enableBloomFilter();
+    }
+
+    /**
+     * Keeps a Bloom filter of the keys, so that most gets for absent keys return at once instead of walking the list. It is rebuilt as the list grows and after many deletes (see BloomFilter.needsRebuild), which costs O(1) amortized per change. Calling this again rebuilds the filter.
+     */
+    public void enableBloomFilter(){
+	BloomFilter b = new BloomFilter(size);
+	for(Node curr = root; curr != null; curr = curr.next)
+	    b.add(curr.key.hashCode());
+	bloom = b;
+    }
+
+    /**
+     * Stops keeping a Bloom filter of the keys.
+     */
+    public void disableBloomFilter(){
+	bloom = null;
+    }
+
     /**
      * Gets the keys for the list.
      * @return ArrayList{@literal <T>} of keys.
@@ -120,6 +168,26 @@ public class OrderedList<T extends Comparable<? super T>, U>{
 	return retArray;
     }
 
+    /**
+     * Gets a lazy view of the values in key order. Nothing is copied; the list is walked as the iterator advances, so it reflects later updates.
+     * @return Iterable{@literal <U>} over the values.
+     */
+    public Iterable<U> values(){
+	return () -> new Iterator<U>(){
+	    private Node next = root;
+	    public boolean hasNext(){
+		return next != null;
+	    }
+	    public U next(){
+		if(next == null)
+		    throw new NoSuchElementException();
+		U value = next.data;
+		next = next.next;
+		return value;
+	    }
+	};
+    }
+
     /**
      * Gets the number of elements in the list.
      * @return gives the current size of the list.
@@ -136,15 +204,32 @@ public class OrderedList<T extends Comparable<? super T>, U>{
     }
 
     /**
-     * Generates a shallow copy of an OrderedList.
+     * Generates a shallow copy of an OrderedList. The nodes are appended in order, so this takes O(n) time. A Bloom filter is copied too.
      * @param l The ordered list to be copied.
      */    
     public OrderedList(OrderedList<T, U> l){
 	Node curr = l.root;
+	Node tail = null;
         while(curr != null){
-	    insert(curr.key, curr.data);
+	    Node n = new Node(curr.key, curr.data);
+	    if(tail == null)
+		root = n;
+	    else
+		tail.next = n;
+	    tail = n;
 	    curr = curr.next;
 	}
+	size = l.size;
+	if(l.bloom != null)
+	    bloom = new BloomFilter(l.bloom);
+    }
+
+    /**
+     * Generates a shallow copy of the OrderedList (see the copy constructor).
+     * @return the copy.
+     */
+    public OrderedList<T, U> copy(){
+	return new OrderedList<>(this);
     }
 
     @Override
@@ -0,0 +1,57 @@
+package library.structures;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+/**
+ * A map whose entries are kept in key order and which can be changed. Implemented by OrderedList, SkipList, UnrolledSkipList and BPlusTree, so that a Library can be built over whichever suits its workload.
+ * @param <K> the key data type. Must be Comparable for ordering.
+ * @param <V> the value data type.
+ */
+public interface OrderedMap<K extends Comparable<? super K>, V> extends OrderedIndex<K, V>{
+    /**
+     * Inserts the item in the map. If the key already exists then the value is updated.
+     * @param searchKey Key associated with new value.
+     * @param value New value to be inserted into the map.
+     */
+    public void insert(K searchKey, V value);
+    /**
+     * Deletes the item associated with the key from the map.
+     * @param searchKey Key of the item to be deleted.
+     * @return If the item is removed from the map return the item; if not, returns null.
+     */
+    public V delete(K searchKey);
+    /**
+     * Generates a shallow copy of the map, of the same kind.
+     * @return the copy.
+     */
+    public OrderedMap<K, V> copy();
+    /**
+     * Inserts a batch of entries whose keys are in strictly increasing order. Entries whose key is already in the map are not inserted and are passed to rejected instead.
+     * By default each entry is looked up and inserted in turn; SkipList searches on from where the previous key was found.
+     * @param <E> the entry type.
+     * @param entries The entries, sorted by key with no repeated keys.
+     * @param key Gets the key of an entry.
+     * @param value Gets the value of an entry.
+     * @param rejected Receives the entries whose key was already present. May be null.
+     * @return the number of entries inserted.
+     * @throws IllegalArgumentException if the keys are not strictly increasing.
+     */
+    public default <E> int insertSorted(List<E> entries, Function<? super E, K> key, Function<? super E, V> value, Consumer<? super E> rejected){
+	int inserted = 0;
+	K last = null;
+	for(E e : entries){
+	    K searchKey = key.apply(e);
+	    if(last != null && last.compareTo(searchKey) >= 0)
+		throw new IllegalArgumentException(searchKey + " is not greater than " + last);
+	    last = searchKey;
+	    if(get(searchKey) != null){
+		if(rejected != null)
+		    rejected.accept(e);
+		continue;
+	    }
+	    insert(searchKey, value.apply(e));
+	    inserted++;
+	}
+	return inserted;
+    }
+}
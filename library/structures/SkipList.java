@@ -1,16 +1,569 @@
 package library.structures;
 import java.util.Random;
 import java.util.ArrayList;
-public class SkipList<T extends Comparable<? super T>, U>{
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.NoSuchElementException;
+/**
+ * A generic skip list data structure.
+ * @param <T> the key data type. Must be Comparable for ordering.
+ * @param <U> the value data type.
+ */
+public class SkipList<T extends Comparable<? super T>, U> implements OrderedMap<T, U>{
     class Node{
 	T key;
-	U value;
+	volatile U value; //Replaced in place when a key is updated, so readers on other threads must see the new value
 	int level;
         ArrayList<Node> forward;
+
+	Node(T key, U value, int level){
+	    this.key = key;
+	    this.value = value;
+	    this.level = level;
+	    this.forward = new ArrayList<>(level);
+	    for(int i = 0; i < level; i++)
+		forward.add(null);
+	}
     }
     //Random object
+    private final Random random = new Random();
     //Maximum level
+    private final int maxLevel;
     //Current highest level
+    private int level = 1;
     //Root node
+    private final Node head;
     //probability value
+    private static final double P = .25;
+    //Number of entries, or -1 if it is not known since a split or concat
+    private int size = 0;
+    //Answers most gets for absent keys without a descent; null unless enabled. Changed or rebuilt only by the methods which change the structure, so a list shared between threads must make those exclude every reader, optimistic ones included; a stale filter may be shared with the other half of a split and is only ever replaced
+    private volatile BloomFilter bloom;
+
+    /**
+     * Generates an empty SkipList.
+     * @param maxLevel The maximum number of levels a node may span.
+     */
+    public SkipList(int maxLevel){
+	this.maxLevel = Math.max(1, maxLevel);
+	this.head = new Node(null, null, this.maxLevel);
+    }
+
+    /**
+     * Generates a shallow copy of a SkipList. Node levels are preserved, so the copy has the same shape as the original; a Bloom filter is copied too. Each node is linked in behind the tail of every level it spans, so this takes O(n) time.
+     * @param sl The skip list to be copied.
+     */
+    public SkipList(SkipList<T, U> sl){
+	this(sl.maxLevel);
+	level = sl.level;
+	size = sl.size;
+	ArrayList<Node> last = new ArrayList<>(maxLevel);
+	for(int i = 0; i < maxLevel; i++)
+	    last.add(head);
+	for(Node curr = sl.head.forward.get(0); curr != null; curr = curr.forward.get(0)){
+	    Node copy = new Node(curr.key, curr.value, curr.level);
+	    for(int i = 0; i < copy.level; i++){
+		last.get(i).forward.set(i, copy);
+		last.set(i, copy);
+	    }
+	}
+	if(sl.bloom != null)
+	    bloom = new BloomFilter(sl.bloom);
+    }
+
+    /**
+     * Generates a shallow copy of the SkipList (see the copy constructor).
+     * @return the copy.
+     */
+    public SkipList<T, U> copy(){
+	return new SkipList<>(this);
+    }
+
+    /**
+     * Builds a SkipList from keys supplied in strictly increasing order. Each key is linked in behind the current tail of every level it spans, so building n entries takes O(n) time instead of O(n log n).
+     * @param <T> the key data type.
+     * @param <U> the value data type.
+     */
+    public static final class SortedBuilder<T extends Comparable<? super T>, U>{
+	private final SkipList<T, U> list;
+	private final ArrayList<SkipList<T, U>.Node> tails;
+	private T last = null;
+
+	/**
+	 * Constructs a SortedBuilder for an empty SkipList.
+	 * @param maxLevel The maximum number of levels a node may span.
+	 */
+	public SortedBuilder(int maxLevel){
+	    list = new SkipList<>(maxLevel);
+	    tails = new ArrayList<>(list.maxLevel);
+	    for(int i = 0; i < list.maxLevel; i++)
+		tails.add(list.head);
+	}
+
+	/**
+	 * Adds an entry after all the entries added so far.
+	 * @param key Key associated with the value. Must be greater than the previous key.
+	 * @param value Value to be added.
+	 * @return Returns the same SortedBuilder instance.
+	 * @throws IllegalArgumentException if key is not greater than the previous key.
+	 */
+	public SortedBuilder<T, U> add(T key, U value){
+	    if(last != null && last.compareTo(key) >= 0)
+		throw new IllegalArgumentException(key + " is not greater than " + last);
+	    int lvl = list.randomLevel();
+	    SkipList<T, U>.Node x = list.new Node(key, value, lvl);
+	    for(int i = 0; i < lvl; i++){
+		tails.get(i).forward.set(i, x);
+		tails.set(i, x);
+	    }
+	    if(lvl > list.level)
+		list.level = lvl;
+	    list.size++;
+	    last = key;
+	    return this;
+	}
+
+	/**
+	 * Finishes building. The builder must not be used afterwards.
+	 * @return the SkipList holding every entry added.
+	 */
+	public SkipList<T, U> build(){
+	    return list;
+	}
+    }
+
+    /**
+     * Gives a sensible maximum level for a list expected to hold n entries (log base 1/P of n).
+     * @param n Expected number of entries.
+     * @return the maximum level, at least 1.
+     */
+    public static int levelsFor(long n){
+	int lvl = 1;
+	for(long reach = 4; reach < n && lvl < 32; reach *= 4) //1/P = 4
+	    lvl++;
+	return lvl;
+    }
+
+    /**
+     * Picks a level for a new node; each additional level is taken with probability P.
+     * @return a level between 1 and maxLevel.
+     */
+    private int randomLevel(){
+	int lvl = 1;
+	while(random.nextDouble() < P && lvl < maxLevel)
+	    lvl++;
+	return lvl;
+    }
+
+    /**
+     * Finds the last node on every level whose key is less than searchKey.
+     * @param searchKey Key being searched for.
+     * @param update Array filled with the predecessor at each level.
+     * @return the level 0 successor of the predecessors (the first node with a key not less than searchKey).
+     */
+    private Node findPredecessors(T searchKey, ArrayList<Node> update){
+	Node x = head;
+	for(int i = level - 1; i >= 0; i--){
+	    Node next = x.forward.get(i);
+	    while(next != null && next.key.compareTo(searchKey) < 0){
+		x = next;
+		next = x.forward.get(i);
+	    }
+	    update.set(i, x);
+	}
+	return x.forward.get(0);
+    }
+
+    /**
+     * Gets the first node on level 0.
+     * @return the node with the smallest key, or null if the list is empty.
+     */
+    Node first(){
+	return head.forward.get(0);
+    }
+
+    /**
+     * Adds a key to the Bloom filter, if there is one, rebuilding the filter if it has grown past its size.
+     */
+    private void added(T key){
+	BloomFilter b = bloom;
+	if(b == null)
+	    return;
+	if(!b.needsRebuild()){ //A stale filter is not changed: it may be shared
+	    b.add(key.hashCode());
+	    if(!b.needsRebuild())
+		return;
+	}
+	enableBloomFilter();
+	bloom.add(key.hashCode()); //The node is not linked yet, so the rebuild missed it
+    }
+
+    /**
+     * Keeps a Bloom filter of the keys, so that most gets for absent keys return at once instead of descending the list. It is rebuilt as the list grows and after many deletes (see BloomFilter.needsRebuild), which costs O(1) amortized per change. Calling this again rebuilds the filter.
+     * The new filter is built aside and swapped in whole, but it is changed in place by later inserts and deletes, so in a list shared between threads this, like them, must run under the lock which excludes readers.
+     */
+    public void enableBloomFilter(){
+	BloomFilter b = new BloomFilter(size());
+	for(Node x = head.forward.get(0); x != null; x = x.forward.get(0))
+	    b.add(x.key.hashCode());
+	bloom = b;
+    }
+
+    /**
+     * Stops keeping a Bloom filter of the keys.
+     */
+    public void disableBloomFilter(){
+	bloom = null;
+    }
+
+    /**
+     * Gets the keys for the list.
+     * @return ArrayList{@literal <T>} of keys.
+     */
+    public ArrayList<T> getKeys(){
+	ArrayList<T> retArray = new ArrayList<>(size());
+	Node curr = head.forward.get(0);
+	while(curr != null){
+	    retArray.add(curr.key);
+	    curr = curr.forward.get(0);
+	}
+	return retArray;
+    }
+
+    /**
+     * Copies a list with int keys into an immutable FrozenIndex, which is searched without following pointers. Suited to read-only snapshots; the list itself is not changed.
+     * @param <U> the value data type.
+     * @param sl The list to be frozen.
+     * @return a FrozenIndex with the list's entries.
+     */
+    public static <U> FrozenIndex<U> freeze(SkipList<Integer, U> sl){
+	int n = sl.size();
+	int[] keys = new int[n];
+	Object[] values = new Object[n];
+	int i = 0;
+	for(SkipList<Integer, U>.Node x = sl.head.forward.get(0); x != null; x = x.forward.get(0), i++){
+	    keys[i] = x.key;
+	    values[i] = x.value;
+	}
+	return new FrozenIndex<>(keys, values, n);
+    }
+
+    /**
+     * Gets a lazy view of the values in key order. Nothing is copied; the list is walked as the iterator advances, so it reflects later updates.
+     * @return Iterable{@literal <U>} over the values.
+     */
+    public Iterable<U> values(){
+	return () -> new Iterator<U>(){
+	    private Node next = head.forward.get(0);
+	    public boolean hasNext(){
+		return next != null;
+	    }
+	    public U next(){
+		if(next == null)
+		    throw new NoSuchElementException();
+		U value = next.value;
+		next = next.forward.get(0);
+		return value;
+	    }
+	};
+    }
+
+    /**
+     * Gets a lazy view of the values whose keys are not less than fromKey, in key order. The first is found in O(log n) time; after that it walks the list like values().
+     * @param fromKey The lowest key included.
+     * @return Iterable{@literal <U>} over the values.
+     */
+    public Iterable<U> valuesFrom(T fromKey){
+	return () -> new Iterator<U>(){
+	    private Node next = ceiling(fromKey);
+	    public boolean hasNext(){
+		return next != null;
+	    }
+	    public U next(){
+		if(next == null)
+		    throw new NoSuchElementException();
+		U value = next.value;
+		next = next.forward.get(0);
+		return value;
+	    }
+	};
+    }
+
+    /**
+     * Finds the first node whose key is not less than searchKey.
+     * @param searchKey Key being searched for.
+     * @return the node, or null if every key is less than searchKey.
+     */
+    private Node ceiling(T searchKey){
+	Node x = head;
+	for(int i = level - 1; i >= 0; i--){
+	    Node next = x.forward.get(i);
+	    while(next != null && next.key.compareTo(searchKey) < 0){
+		x = next;
+		next = x.forward.get(i);
+	    }
+	}
+	return x.forward.get(0);
+    }
+
+    /**
+     * Gets the item associated with the given key.
+     * @param searchKey Key for desired value.
+     * @return value at location searchKey. If it does not exist, returns null.
+     */
+    public U get(T searchKey){
+	BloomFilter b = bloom;
+	if(b != null && !b.mightContain(searchKey.hashCode()))
+	    return null;
+	Node x = head;
+	for(int i = level - 1; i >= 0; i--){
+	    Node next = x.forward.get(i);
+	    while(next != null && next.key.compareTo(searchKey) < 0){
+		x = next;
+		next = x.forward.get(i);
+	    }
+	}
+	x = x.forward.get(0);
+	if(x != null && x.key.compareTo(searchKey) == 0)
+	    return x.value;
+	return null;
+    }
+
+    /**
+     * Inserts the item in the list. If the key already exists then the value is updated.
+     * @param searchKey Key associated with new value.
+     * @param newValue New value to be inserted into the list.
+     */
+    public void insert(T searchKey, U newValue){
+	insert(0, searchKey, newValue);
+    }
+
+    /**
+     * Inserts the item in the list with a given level. If the key already exists then the value is updated.
+     * @param oldLevel Level for the new node; if it is not between 1 and maxLevel a random level is chosen.
+     * @param searchKey Key associated with new value.
+     * @param newValue New value to be inserted into the list.
+     */
+    public void insert(int oldLevel, T searchKey, U newValue){
+	ArrayList<Node> update = new ArrayList<>(maxLevel);
+	for(int i = 0; i < maxLevel; i++)
+	    update.add(head);
+	Node x = findPredecessors(searchKey, update);
+	if(x != null && x.key.compareTo(searchKey) == 0){
+	    x.value = newValue;
+	    return;
+	}
+	int lvl = (oldLevel >= 1 && oldLevel <= maxLevel) ? oldLevel : randomLevel();
+	if(lvl > level)
+	    level = lvl; //update already holds the head for the new levels
+	x = new Node(searchKey, newValue, lvl);
+	added(searchKey); //Before the node is linked, so a reader which finds it is not turned away
+	for(int i = 0; i < lvl; i++){
+	    x.forward.set(i, update.get(i).forward.get(i));
+	    update.get(i).forward.set(i, x);
+	}
+	if(size >= 0)
+	    size++;
+    }
+
+    /**
+     * Inserts a batch of entries whose keys are in strictly increasing order. Entries whose key is already in the list are not inserted and are passed to rejected instead.
+     * The search for each key starts from where the previous one ended (a finger search): it climbs from the previous key's predecessors only as high as it must to pass the nodes between the two keys, and then descends. A key d entries past the previous one costs O(log d), so a sorted batch of m entries costs O(m log(n/m)) rather than m full descents.
+     * @param <E> the entry type.
+     * @param entries The entries, sorted by key with no repeated keys.
+     * @param key Gets the key of an entry.
+     * @param value Gets the value of an entry.
+     * @param rejected Receives the entries whose key was already present. May be null.
+     * @return the number of entries inserted.
+     * @throws IllegalArgumentException if the keys are not strictly increasing.
+     */
+    public <E> int insertSorted(List<E> entries, Function<? super E, T> key, Function<? super E, U> value, Consumer<? super E> rejected){
+	ArrayList<Node> update = new ArrayList<>(maxLevel);
+	for(int i = 0; i < maxLevel; i++)
+	    update.add(head);
+	int inserted = 0;
+	T last = null;
+	for(E e : entries){
+	    T searchKey = key.apply(e);
+	    if(last != null && last.compareTo(searchKey) >= 0)
+		throw new IllegalArgumentException(searchKey + " is not greater than " + last);
+	    last = searchKey;
+	    //Climb from the previous key's predecessors while the next node on the level still comes before this key; above the
+	    //first level where it does not, the predecessors are already right
+	    int h = 0;
+	    while(h < level){
+		Node next = update.get(h).forward.get(h);
+		if(next == null || next.key.compareTo(searchKey) >= 0)
+		    break;
+		h++;
+	    }
+	    Node x = h < level ? update.get(h) : head;
+	    for(int i = h - 1; i >= 0; i--){
+		Node u = update.get(i);
+		if(u != head && (x == head || u.key.compareTo(x.key) > 0))
+		    x = u; //Resume from the previous predecessor if it is further along
+		Node next = x.forward.get(i);
+		while(next != null && next.key.compareTo(searchKey) < 0){
+		    x = next;
+		    next = x.forward.get(i);
+		}
+		update.set(i, x);
+	    }
+	    Node found = x.forward.get(0);
+	    if(found != null && found.key.compareTo(searchKey) == 0){
+		if(rejected != null)
+		    rejected.accept(e);
+		continue;
+	    }
+	    int lvl = randomLevel();
+	    if(lvl > level)
+		level = lvl; //update already holds the head for the new levels
+	    Node n = new Node(searchKey, value.apply(e), lvl);
+	    added(searchKey);
+	    for(int i = 0; i < lvl; i++){
+		n.forward.set(i, update.get(i).forward.get(i));
+		update.get(i).forward.set(i, n);
+	    }
+	    if(size >= 0)
+		size++;
+	    inserted++;
+	}
+	return inserted;
+    }
+
+    /**
+     * Deletes the item associated with the key from the list.
+     * @param searchKey Key of the item to be deleted.
+     * @return If the item is removed from the list return the item; if not, returns null.
+     */
+    public U delete(T searchKey){
+	ArrayList<Node> update = new ArrayList<>(maxLevel);
+	for(int i = 0; i < maxLevel; i++)
+	    update.add(head);
+	Node x = findPredecessors(searchKey, update);
+	if(x == null || x.key.compareTo(searchKey) != 0)
+	    return null;
+	for(int i = 0; i < level; i++){
+	    if(update.get(i).forward.get(i) != x)
+		break;
+	    update.get(i).forward.set(i, x.forward.get(i));
+	}
+	while(level > 1 && head.forward.get(level - 1) == null)
+	    level--;
+	if(size >= 0)
+	    size--;
+	BloomFilter b = bloom;
+	if(b != null){
+	    if(!b.needsRebuild())
+		b.removed();
+	    if(b.needsRebuild())
+		enableBloomFilter();
+	}
+	return x.value;
+    }
+
+    /**
+     * Removes every entry with a key not less than splitKey and returns them as a new SkipList. Nodes are not copied: each level is cut after its last smaller node and the rest is relinked onto the new list's head, so this takes O(log n) time.
+     * The sizes of both lists are recounted the next time they are asked for. A Bloom filter is not copied either: both lists share it, marked stale, and each rebuilds its own at its first insert or delete.
+     * @param splitKey The lowest key moved to the new list.
+     * @return a SkipList, with the same maximum level, holding the entries whose keys are at least splitKey.
+     */
+    public SkipList<T, U> splitAt(T splitKey){
+	ArrayList<Node> update = new ArrayList<>(maxLevel);
+	for(int i = 0; i < maxLevel; i++)
+	    update.add(head);
+	findPredecessors(splitKey, update);
+	SkipList<T, U> upper = new SkipList<>(maxLevel);
+	for(int i = 0; i < level; i++){
+	    upper.head.forward.set(i, update.get(i).forward.get(i));
+	    update.get(i).forward.set(i, null);
+	}
+	upper.level = level;
+	upper.trimLevel();
+	trimLevel();
+	upper.size = -1;
+	size = -1;
+	if(bloom != null){
+	    //It holds every key of both lists, and more than either needs
+	    bloom.markStale();
+	    upper.bloom = bloom;
+	}
+	return upper;
+    }
+
+    /**
+     * Moves every entry of other onto the end of this list, leaving other empty. Each of other's levels is linked after the last node on the same level here, so this takes O(log n) time, plus the time to merge Bloom filters if this list keeps one: a pass over the filters' bits when both are current and the same size, or otherwise a rebuild from the keys, O(n).
+     * @param other A list whose keys are all greater than the keys in this list.
+     * @throws IllegalArgumentException if other's keys do not all follow this list's keys, or other has nodes taller than this list's maximum level.
+     */
+    public void concat(SkipList<T, U> other){
+	if(other == this)
+	    throw new IllegalArgumentException("Cannot concatenate a list with itself");
+	if(other.level > maxLevel)
+	    throw new IllegalArgumentException("Nodes span " + other.level + " levels; at most " + maxLevel + " allowed");
+	Node first = other.head.forward.get(0);
+	if(first == null)
+	    return;
+	ArrayList<Node> tails = new ArrayList<>(maxLevel);
+	Node x = head;
+	for(int i = level - 1; i >= 0; i--){
+	    while(x.forward.get(i) != null)
+		x = x.forward.get(i);
+	    tails.add(0, x);
+	}
+	if(x != head && x.key.compareTo(first.key) >= 0)
+	    throw new IllegalArgumentException(first.key + " is not greater than " + x.key);
+	for(int i = 0; i < other.level; i++){
+	    Node tail = i < level ? tails.get(i) : head;
+	    tail.forward.set(i, other.head.forward.get(i));
+	    other.head.forward.set(i, null);
+	}
+	if(other.level > level)
+	    level = other.level;
+	size = (size >= 0 && other.size >= 0) ? size + other.size : -1;
+	if(bloom != null && (other.bloom == null || bloom.needsRebuild() || !bloom.union(other.bloom)))
+	    enableBloomFilter(); //Also replaces a stale filter, which may be shared, instead of changing it
+	other.level = 1;
+	other.size = 0;
+	other.bloom = null;
+    }
+
+    /**
+     * Lowers the current highest level past any empty levels at the top.
+     */
+    private void trimLevel(){
+	while(level > 1 && head.forward.get(level - 1) == null)
+	    level--;
+    }
+
+    /**
+     * Gets the number of elements in the list.
+     * @return gives the current size of the list.
+     */
+    public int size(){
+	if(size < 0){
+	    int n = 0;
+	    for(Node x = head.forward.get(0); x != null; x = x.forward.get(0))
+		n++;
+	    size = n;
+	}
+	return size;
+    }
+
+    @Override
+    public String toString(){
+	Node curr = head.forward.get(0);
+	if(curr == null) return "[]";
+	StringBuilder sb = new StringBuilder();
+	sb.append("[ ");
+	while(curr.forward.get(0) != null){
+	    sb.append(curr.value.toString()).append(", ");
+	    curr = curr.forward.get(0);
+	}
+	sb.append(curr.value.toString());
+	sb.append("]");
+	return sb.toString();
+    }
 }
@@ -0,0 +1,340 @@
+package library.structures;
+import java.util.Random;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+/**
+ * A skip list with int keys whose bottom level is a list of blocks rather than of single entries. Each block packs up to BLOCK sorted keys and their values in arrays, and the towers index blocks by their first key, so a lookup follows a pointer per block instead of per entry and then binary searches keys which sit next to each other in memory.
+ * <p>
+ * A block which fills up is split in two; a block left less than a quarter full by a delete is merged with the next one, and an empty block is unlinked.
+ * @param <U> the value data type.
+ */
+public class UnrolledSkipList<U> implements OrderedMap<Integer, U>{
+    private static final int BLOCK = 32; //Keys per block: 128 bytes of keys, two cache lines
+
+    private static final class Node{
+	final int[] keys;
+	final Object[] values;
+	int n = 0;
+	final Node[] forward;
+
+	Node(int level){
+	    keys = new int[BLOCK];
+	    values = new Object[BLOCK];
+	    forward = new Node[level];
+	}
+    }
+    //Random object
+    private final Random random = new Random();
+    //Maximum level
+    private final int maxLevel;
+    //Current highest level
+    private int level = 1;
+    //Root node; holds no keys
+    private final Node head;
+    //probability value
+    private static final double P = .25;
+    //Number of entries
+    private int size = 0;
+
+    /**
+     * Generates an empty UnrolledSkipList.
+     * @param maxLevel The maximum number of levels a block may span; see SkipList.levelsFor, with the number of blocks expected.
+     */
+    public UnrolledSkipList(int maxLevel){
+	this.maxLevel = Math.max(1, maxLevel);
+	this.head = new Node(this.maxLevel);
+    }
+
+    /**
+     * Generates a shallow copy of an UnrolledSkipList. Block levels are preserved, so the copy has the same shape as the original.
+     * @param sl The skip list to be copied.
+     */
+    public UnrolledSkipList(UnrolledSkipList<U> sl){
+	this(sl.maxLevel);
+	level = sl.level;
+	size = sl.size;
+	Node[] last = new Node[maxLevel];
+	Arrays.fill(last, head);
+	for(Node curr = sl.head.forward[0]; curr != null; curr = curr.forward[0]){
+	    Node copy = new Node(curr.forward.length);
+	    copy.n = curr.n;
+	    System.arraycopy(curr.keys, 0, copy.keys, 0, curr.n);
+	    System.arraycopy(curr.values, 0, copy.values, 0, curr.n);
+	    for(int i = 0; i < copy.forward.length; i++){
+		last[i].forward[i] = copy;
+		last[i] = copy;
+	    }
+	}
+    }
+
+    /**
+     * Generates a shallow copy of the UnrolledSkipList (see the copy constructor).
+     * @return the copy.
+     */
+    public UnrolledSkipList<U> copy(){
+	return new UnrolledSkipList<>(this);
+    }
+
+    /**
+     * Picks a level for a new block; each additional level is taken with probability P.
+     * @return a level between 1 and maxLevel.
+     */
+    private int randomLevel(){
+	int lvl = 1;
+	while(random.nextDouble() < P && lvl < maxLevel)
+	    lvl++;
+	return lvl;
+    }
+
+    /**
+     * Finds the block which would hold a key: the last one whose first key is not greater than it.
+     * @return the block, or head if the key is less than every key in the list.
+     */
+    private Node blockFor(int key){
+	Node x = head;
+	for(int i = level - 1; i >= 0; i--){
+	    Node next;
+	    while((next = x.forward[i]) != null && next.keys[0] <= key)
+		x = next;
+	}
+	return x;
+    }
+
+    /**
+     * Finds the last block on each level whose first key is less than key.
+     * @param update Filled with the blocks, one per level.
+     */
+    private void predecessors(int key, Node[] update){
+	Node x = head;
+	for(int i = level - 1; i >= 0; i--){
+	    Node next;
+	    while((next = x.forward[i]) != null && next.keys[0] < key)
+		x = next;
+	    update[i] = x;
+	}
+    }
+
+    /**
+     * Finds a key in a block.
+     * @return the key's position, or -(insertion point) - 1 if it is not there.
+     */
+    private static int find(Node block, int key){
+	int lo = 0, hi = block.n - 1;
+	while(lo <= hi){
+	    int mid = (lo + hi) >>> 1;
+	    int k = block.keys[mid];
+	    if(k < key)
+		lo = mid + 1;
+	    else if(k > key)
+		hi = mid - 1;
+	    else
+		return mid;
+	}
+	return -(lo + 1);
+    }
+
+    /**
+     * Gets the keys for the skip list.
+     * @return ArrayList{@literal <Integer>} of keys.
+     */
+    public ArrayList<Integer> getKeys(){
+	ArrayList<Integer> retArray = new ArrayList<>(size);
+	for(Node curr = head.forward[0]; curr != null; curr = curr.forward[0]){
+	    for(int i = 0; i < curr.n; i++)
+		retArray.add(curr.keys[i]);
+	}
+	return retArray;
+    }
+
+    /**
+     * Gets a lazy view of the values in key order. Nothing is copied; the blocks are walked as the iterator advances.
+     * @return Iterable{@literal <U>} over the values.
+     */
+    public Iterable<U> values(){
+	return () -> new Iterator<U>(){
+	    private Node block = head.forward[0];
+	    private int i = 0;
+	    public boolean hasNext(){
+		while(block != null && i >= block.n){
+		    block = block.forward[0];
+		    i = 0;
+		}
+		return block != null;
+	    }
+	    @SuppressWarnings("unchecked")
+	    public U next(){
+		if(!hasNext())
+		    throw new NoSuchElementException();
+		return (U)block.values[i++];
+	    }
+	};
+    }
+
+    /**
+     * Gets the item associated with the given key.
+     * @param searchKey Key for desired value.
+     * @return value at location searchKey. If it does not exist, returns null.
+     */
+    @SuppressWarnings("unchecked")
+    public U get(int searchKey){
+	Node block = blockFor(searchKey);
+	if(block == head)
+	    return null;
+	int i = find(block, searchKey);
+	return i >= 0 ? (U)block.values[i] : null;
+    }
+
+    public U get(Integer searchKey){
+	return get(searchKey.intValue());
+    }
+
+    /**
+     * Inserts the item in the skip list without boxing the key. If the key already exists then the value is updated.
+     * @param searchKey Key associated with new value.
+     * @param newValue New value to be inserted into the skip list.
+     */
+    public void put(int searchKey, U newValue){
+	Node[] update = new Node[maxLevel];
+	Node x = head;
+	for(int i = level - 1; i >= 0; i--){
+	    Node next;
+	    while((next = x.forward[i]) != null && next.keys[0] <= searchKey)
+		x = next;
+	    update[i] = x;
+	}
+	if(x == head){
+	    //Less than every key: it goes at the front of the first block
+	    x = head.forward[0];
+	    if(x == null){
+		x = new Node(1);
+		head.forward[0] = x;
+	    }
+	}
+	int i = find(x, searchKey);
+	if(i >= 0){
+	    x.values[i] = newValue;
+	    return;
+	}
+	i = -i - 1;
+	size++;
+	if(x.n == BLOCK){
+	    Node right = split(x, update);
+	    if(i > x.n){
+		i -= x.n;
+		x = right;
+	    }
+	}
+	insertAt(x, i, searchKey, newValue);
+    }
+
+    public void insert(Integer searchKey, U newValue){
+	put(searchKey.intValue(), newValue);
+    }
+
+    /**
+     * Moves the upper half of a full block into a new block linked in after it.
+     * @param update The last block on each level whose first key is not greater than the key being inserted.
+     * @return the new block.
+     */
+    private Node split(Node block, Node[] update){
+	int lvl = randomLevel();
+	if(lvl > level){
+	    for(int i = level; i < lvl; i++)
+		update[i] = head;
+	    level = lvl;
+	}
+	Node right = new Node(lvl);
+	int half = BLOCK / 2;
+	right.n = BLOCK - half;
+	System.arraycopy(block.keys, half, right.keys, 0, right.n);
+	System.arraycopy(block.values, half, right.values, 0, right.n);
+	Arrays.fill(block.values, half, BLOCK, null);
+	block.n = half;
+	for(int i = 0; i < lvl; i++){
+	    //On the levels the full block spans the new one follows it; above them it follows the block's predecessor
+	    Node prev = i < block.forward.length ? block : update[i];
+	    right.forward[i] = prev.forward[i];
+	    prev.forward[i] = right;
+	}
+	return right;
+    }
+
+    private static void insertAt(Node block, int i, int key, Object value){
+	System.arraycopy(block.keys, i, block.keys, i + 1, block.n - i);
+	System.arraycopy(block.values, i, block.values, i + 1, block.n - i);
+	block.keys[i] = key;
+	block.values[i] = value;
+	block.n++;
+    }
+
+    /**
+     * Deletes the item associated with the key from the skip list.
+     * @param searchKey Key of the item to be deleted.
+     * @return If the item is removed from the skip list return the item; if not, returns null.
+     */
+    @SuppressWarnings("unchecked")
+    public U delete(int searchKey){
+	Node block = blockFor(searchKey);
+	if(block == head)
+	    return null;
+	int i = find(block, searchKey);
+	if(i < 0)
+	    return null;
+	U value = (U)block.values[i];
+	System.arraycopy(block.keys, i + 1, block.keys, i, block.n - i - 1);
+	System.arraycopy(block.values, i + 1, block.values, i, block.n - i - 1);
+	block.values[--block.n] = null;
+	size--;
+	Node next = block.forward[0];
+	if(block.n == 0)
+	    unlink(block, searchKey);
+	else if(block.n < BLOCK / 4 && next != null && block.n + next.n <= BLOCK / 2){
+	    //Merge the next block into this one
+	    System.arraycopy(next.keys, 0, block.keys, block.n, next.n);
+	    System.arraycopy(next.values, 0, block.values, block.n, next.n);
+	    block.n += next.n;
+	    unlink(next, next.keys[0]);
+	}
+	return value;
+    }
+
+    public U delete(Integer searchKey){
+	return delete(searchKey.intValue());
+    }
+
+    /**
+     * Takes a block out of every level it spans.
+     * @param first The block's first key, or for an emptied block the key just removed from it.
+     */
+    private void unlink(Node block, int first){
+	Node[] update = new Node[maxLevel];
+	predecessors(first, update);
+	for(int i = 0; i < block.forward.length; i++){
+	    if(update[i].forward[i] == block)
+		update[i].forward[i] = block.forward[i];
+	}
+	while(level > 1 && head.forward[level - 1] == null)
+	    level--;
+    }
+
+    /**
+     * Gets the number of entries.
+     * @return the number of keys in the skip list.
+     */
+    public int size(){
+	return size;
+    }
+
+    @Override
+    public String toString(){
+	StringBuilder sb = new StringBuilder("[");
+	for(U value : values()){
+	    if(sb.length() > 1)
+		sb.append(", ");
+	    sb.append(value);
+	}
+	return sb.append("]").toString();
+    }
+}